@@ -0,0 +1,98 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import com.mongodb.client.MongoCollection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Users;
+import org.aygo.core.HttpStatus;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@value #USERS} users with one {@code POST /users} each against {@code POST /users/batch}
+ * with the largest batch. Scores are per inserted user, so the ratio between the two is the speed-up
+ * of batching; every invocation starts from an empty collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BatchInsertBenchmark {
+    private static final String PATH = "/users";
+    private static final String PATH_BATCH = PATH + "/batch";
+    private static final String ENV_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final int USERS = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    private Users handler;
+    private MongoCollection<Document> users;
+    private APIGatewayProxyRequestEvent[] singleRequests;
+    private APIGatewayProxyRequestEvent[] batchRequests;
+
+    @Setup
+    public void setUp() {
+        handler = new Users();
+        users = Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION);
+        singleRequests = new APIGatewayProxyRequestEvent[USERS];
+        for (int i = 0; i < USERS; i++) {
+            singleRequests[i] = Fixtures.post(PATH, body(i));
+        }
+        batchRequests = new APIGatewayProxyRequestEvent[USERS / BATCH_SIZE];
+        for (int batch = 0; batch < batchRequests.length; batch++) {
+            StringJoiner items = new StringJoiner(",", "[", "]");
+            for (int i = batch * BATCH_SIZE; i < (batch + 1) * BATCH_SIZE; i++) {
+                items.add(body(i));
+            }
+            batchRequests[batch] = Fixtures.post(PATH_BATCH, items.toString());
+        }
+    }
+
+    private static String body(int index) {
+        return "{\"name\":\"User " + index + "\"}";
+    }
+
+    @Setup(Level.Invocation)
+    public void empty() {
+        users.deleteMany(new Document());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public int singleInserts() {
+        int created = 0;
+        for (APIGatewayProxyRequestEvent request : singleRequests) {
+            created += handler.handleRequest(request, null).getStatusCode() == HttpStatus.CREATED ? 1 : 0;
+        }
+        return created;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public int batchInserts() {
+        int batches = 0;
+        for (APIGatewayProxyRequestEvent request : batchRequests) {
+            batches += handler.handleRequest(request, null).getStatusCode() == HttpStatus.OK ? 1 : 0;
+        }
+        return batches;
+    }
+}
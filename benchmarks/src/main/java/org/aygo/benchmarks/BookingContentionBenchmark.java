@@ -0,0 +1,149 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Rides;
+import org.aygo.core.HttpStatus;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code POST /rides/book} from {@value #THREADS} threads racing for a hot set of {@code rides}
+ * rides, each with its own driver. Every thread books as its own passenger; after a successful
+ * booking the ride, its driver and the passenger are freed again outside the measured time, so the
+ * race never runs out of rides. The {@code booked}, {@code conflicts} and {@code errors} counters
+ * show how many attempts won, lost to another booking (409), or failed after exhausting
+ * {@code BOOKING_MAX_ATTEMPTS} (5xx). Transactions need mongod running as a replica set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(BookingContentionBenchmark.THREADS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BookingContentionBenchmark {
+    static final int THREADS = 8;
+
+    private static final String PATH_BOOK = "/rides/book";
+    private static final String RIDE_PREFIX = "r_";
+    private static final String DRIVER_PREFIX = "d_";
+    private static final String USER_PREFIX = "u_";
+
+    @Param({"1", "16", "1024"})
+    private int rides;
+
+    private Rides handler;
+    private MongoCollection<Document> ridesCollection;
+    private MongoCollection<Document> users;
+    private MongoCollection<Document> drivers;
+    private final AtomicInteger nextPassenger = new AtomicInteger();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long booked;
+        public long conflicts;
+        public long errors;
+
+        private String passengerId;
+        private String bookedRide;
+
+        @Setup(Level.Trial)
+        public void assignPassenger(BookingContentionBenchmark benchmark) {
+            passengerId = Fixtures.id(USER_PREFIX, benchmark.nextPassenger.getAndIncrement());
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            conflicts = 0;
+            errors = 0;
+        }
+
+        @TearDown(Level.Invocation)
+        public void free(BookingContentionBenchmark benchmark) {
+            if (bookedRide != null) {
+                benchmark.free(bookedRide, passengerId);
+                bookedRide = null;
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        handler = new Rides();
+        ridesCollection = Fixtures.collection("MONGO_RIDES_COLLECTION", "MONGO_COLLECTION");
+        users = Fixtures.collection("MONGO_USERS_COLLECTION");
+        drivers = Fixtures.collection("MONGO_DRIVERS_COLLECTION");
+        Fixtures.seed(ridesCollection, rides, index -> new Document("id", Fixtures.id(RIDE_PREFIX, index))
+                .append("driver", Fixtures.id(DRIVER_PREFIX, index))
+                .append("available", true)
+                .append("passengerId", null)
+                .append("version", 1L));
+        Fixtures.seed(drivers, rides, index -> new Document("id", Fixtures.id(DRIVER_PREFIX, index))
+                .append("name", "Driver " + index)
+                .append("traveling", false)
+                .append("travel", null)
+                .append("busy", false));
+        Fixtures.seed(users, THREADS * 4, index -> new Document("id", Fixtures.id(USER_PREFIX, index))
+                .append("name", "User " + index)
+                .append("traveling", false)
+                .append("travel", null));
+    }
+
+    private void free(String rideId, String passengerId) {
+        Document ride = ridesCollection.findOneAndUpdate(Filters.eq("id", rideId), Updates.combine(
+                Updates.set("available", true),
+                Updates.set("passengerId", null)));
+        if (ride != null) {
+            drivers.updateOne(Filters.eq("id", ride.getString("driver")), Updates.combine(
+                    Updates.set("traveling", false),
+                    Updates.set("travel", null),
+                    Updates.set("busy", false)));
+        }
+        users.updateOne(Filters.eq("id", passengerId), Updates.combine(
+                Updates.set("traveling", false),
+                Updates.set("travel", null)));
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent book(Outcomes outcomes) {
+        String rideId = Fixtures.id(RIDE_PREFIX, ThreadLocalRandom.current().nextInt(rides));
+        APIGatewayProxyResponseEvent response = handler.handleRequest(Fixtures.post(PATH_BOOK,
+                "{\"id\":\"" + rideId + "\",\"passengerId\":\"" + outcomes.passengerId + "\"}"), null);
+        if (response.getStatusCode() == HttpStatus.OK) {
+            outcomes.booked++;
+            outcomes.bookedRide = rideId;
+        } else if (response.getStatusCode() == HttpStatus.CONFLICT) {
+            outcomes.conflicts++;
+        } else {
+            outcomes.errors++;
+        }
+        return response;
+    }
+}
@@ -0,0 +1,101 @@
+package org.aygo.benchmarks;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.core.MongoSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a cold container pays with and without the ping {@link MongoSupport} sends during init.
+ * Every fork is a fresh JVM measured once: {@code init} times creating the client (plus the ping
+ * when {@code warmUp} is true), and {@code firstRequest} times the first lookup by id on a client
+ * created outside the measurement. Without the ping the handshake and server discovery move from
+ * {@code init} to {@code firstRequest}. The client is built from {@link MongoSupport#settings} but
+ * not through {@link MongoSupport#client()}, so {@code MONGO_WARMUP} does not apply here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class ColdStartBenchmark {
+    private static final String ENV_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+
+    @Param({"true", "false"})
+    private boolean warmUp;
+
+    private MongoClient open() {
+        MongoClient opened = MongoClients.create(MongoSupport.settings(MongoSupport.requireEnv(MongoSupport.ENV_MONGO_URI)));
+        if (warmUp) {
+            MongoSupport.warmUp(opened);
+        }
+        return opened;
+    }
+
+    /**
+     * Holds the client {@code init} opened, so it is closed after the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class Opened {
+        private MongoClient client;
+
+        @TearDown
+        public void close() {
+            if (client != null) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * A client opened before the measurement, as the handler's static init would have.
+     */
+    @State(Scope.Benchmark)
+    public static class Initialised {
+        private MongoClient client;
+        private MongoCollection<Document> users;
+
+        @Setup
+        public void open(ColdStartBenchmark benchmark) {
+            client = benchmark.open();
+            users = MongoSupport.collection(MongoSupport.database(client), ENV_COLLECTION, ENV_FALLBACK_COLLECTION);
+        }
+
+        @TearDown
+        public void close() {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public MongoClient init(Opened opened) {
+        opened.client = open();
+        return opened.client;
+    }
+
+    @Benchmark
+    public Document firstRequest(Initialised initialised) {
+        return initialised.users.find(Filters.eq("id", Fixtures.id("u_", 0))).first();
+    }
+}
@@ -0,0 +1,157 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Rides;
+import org.aygo.core.Json;
+import org.aygo.core.Page;
+import org.aygo.core.PageRequest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The available rides of one driver read with the server-side filters of {@code GET /rides}
+ * against downloading every ride, as the unfiltered list did, and filtering on the client. Rides
+ * are spread over {@value #DRIVERS} drivers and every tenth one is available. Response bytes are
+ * reported as the {@code bytes} counter; divide by {@code responses} for bytes per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilteredListBenchmark {
+    private static final String PATH = "/rides";
+    private static final String ENV_COLLECTION = "MONGO_RIDES_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final String ID_PREFIX = "r_";
+    private static final String DRIVER_PREFIX = "d_";
+    private static final int DRIVERS = 100;
+    private static final String MAX_PAGE_SIZE = "1000";
+
+    @Param({"10000", "100000"})
+    private int documents;
+
+    private Rides handler;
+    private APIGatewayProxyRequestEvent[] filteredRequests;
+    private String[] drivers;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long bytes;
+        public long responses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            responses = 0;
+        }
+
+        void record(APIGatewayProxyResponseEvent response) {
+            bytes += response.getBody().length();
+            responses++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        handler = new Rides();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION), documents, FilteredListBenchmark::document);
+        drivers = new String[Fixtures.REQUEST_POOL_SIZE];
+        filteredRequests = Fixtures.pool(DRIVERS, index -> Fixtures.get(PATH, Map.of(
+                "driver", Fixtures.id(DRIVER_PREFIX, index),
+                "available", "true",
+                PageRequest.QUERY_PARAM_LIMIT, Fixtures.LIST_PAGE_SIZE)));
+        for (int i = 0; i < drivers.length; i++) {
+            drivers[i] = filteredRequests[i].getQueryStringParameters().get("driver");
+        }
+    }
+
+    private static Document document(int index) {
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("driver", Fixtures.id(DRIVER_PREFIX, index % DRIVERS))
+                .append("available", index % 10 == 0)
+                .append("passengerId", null)
+                .append("version", 1L);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (Fixtures.REQUEST_POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent filteredPage(Transfer transfer) {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(filteredRequests[nextIndex()], null);
+        transfer.record(response);
+        return response;
+    }
+
+    @Benchmark
+    public List<String> fullDump(Transfer transfer) throws IOException {
+        String driver = drivers[nextIndex()];
+        List<String> matches = new ArrayList<>();
+        String after = null;
+        do {
+            Map<String, String> parameters = after == null
+                    ? Map.of(PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE)
+                    : Map.of(PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE, PageRequest.QUERY_PARAM_AFTER, after);
+            APIGatewayProxyResponseEvent response = handler.handleRequest(Fixtures.get(PATH, parameters), null);
+            transfer.record(response);
+            collect(response.getBody(), driver, matches);
+            after = response.getHeaders() == null ? null : response.getHeaders().get(Page.HEADER_NEXT_CURSOR);
+        } while (after != null);
+        return matches;
+    }
+
+    private static void collect(String body, String driver, List<String> matches) throws IOException {
+        try (JsonReader reader = Json.gson().newJsonReader(new StringReader(body))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String id = null;
+                String rideDriver = null;
+                boolean available = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "id" -> id = Json.nextString(reader);
+                        case "driver" -> rideDriver = Json.nextString(reader);
+                        case "available" -> available = Json.nextBoolean(reader, false);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (available && driver.equals(rideDriver)) {
+                    matches.add(id);
+                }
+            }
+            reader.endArray();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import com.mongodb.client.MongoCollection;
+
+import org.bson.Document;
+
+import org.aygo.core.MongoSupport;
+import org.aygo.core.Router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Seeding and request helpers shared by the handler benchmarks. Suites run against the mongod
+ * configured through the same environment variables the Lambdas read, so point {@code MONGO_DB} at
+ * a scratch database: every trial empties the benchmarked collection before seeding it.
+ */
+final class Fixtures {
+    static final int REQUEST_POOL_SIZE = 1024;
+    static final String LIST_PAGE_SIZE = "100";
+
+    private static final int INSERT_CHUNK_SIZE = 1000;
+    private static final String QUERY_PARAM_LIMIT = "limit";
+
+    private Fixtures() {
+    }
+
+    static MongoCollection<Document> collection(String collectionEnv) {
+        return MongoSupport.collection(MongoSupport.database(MongoSupport.client()), collectionEnv);
+    }
+
+    static MongoCollection<Document> collection(String collectionEnv, String fallbackEnv) {
+        return MongoSupport.collection(MongoSupport.database(MongoSupport.client()), collectionEnv, fallbackEnv);
+    }
+
+    /**
+     * Replaces the collection's documents with {@code count} generated ones. Documents are deleted
+     * rather than the collection dropped, so the indexes created by the handler stay in place.
+     */
+    static void seed(MongoCollection<Document> collection, int count, IntFunction<Document> factory) {
+        collection.deleteMany(new Document());
+        List<Document> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            chunk.add(factory.apply(i));
+            if (chunk.size() == INSERT_CHUNK_SIZE) {
+                collection.insertMany(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            collection.insertMany(chunk);
+        }
+    }
+
+    static String id(String prefix, int index) {
+        return prefix + String.format("%08d", index);
+    }
+
+    /**
+     * Pre-builds requests addressed to random seeded documents, so request construction and
+     * random number generation stay out of the measured loop.
+     */
+    static APIGatewayProxyRequestEvent[] pool(int documents, IntFunction<APIGatewayProxyRequestEvent> factory) {
+        APIGatewayProxyRequestEvent[] requests = new APIGatewayProxyRequestEvent[REQUEST_POOL_SIZE];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = factory.apply(ThreadLocalRandom.current().nextInt(documents));
+        }
+        return requests;
+    }
+
+    static APIGatewayProxyRequestEvent get(String path, Map<String, String> parameters) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(Router.HTTP_METHOD_GET)
+                .withPath(path)
+                .withQueryStringParameters(parameters);
+    }
+
+    static APIGatewayProxyRequestEvent list(String path) {
+        return get(path, Map.of(QUERY_PARAM_LIMIT, LIST_PAGE_SIZE));
+    }
+
+    static APIGatewayProxyRequestEvent post(String path, String body) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(Router.HTTP_METHOD_POST)
+                .withPath(path)
+                .withBody(body);
+    }
+
+    static APIGatewayProxyRequestEvent put(String path, String body) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(Router.HTTP_METHOD_PUT)
+                .withPath(path)
+                .withBody(body);
+    }
+}
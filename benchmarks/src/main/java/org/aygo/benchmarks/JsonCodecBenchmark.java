@@ -0,0 +1,139 @@
+package org.aygo.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.core.Json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written streaming codecs against the reflective Gson path they replaced, on a
+ * ride-shaped entity. Needs no database; run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonCodecBenchmark {
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_DRIVER = "driver";
+    private static final String FIELD_AVAILABLE = "available";
+    private static final String FIELD_PASSENGER_ID = "passengerId";
+    private static final int LIST_SIZE = 100;
+    private static final String REQUEST_BODY = "{\"id\":\"r_00000042\",\"available\":false,\"passengerId\":\"u_00000007\"}";
+
+    private final Gson gson = Json.gson();
+    private Document ride;
+    private List<Document> rides;
+
+    @SuppressWarnings("unused")
+    private static class RideSummary {
+        private final String id;
+        private final String driver;
+        private final boolean available;
+        private final String passengerId;
+
+        RideSummary(Document source) {
+            this.id = source.getString(FIELD_ID);
+            this.driver = source.getString(FIELD_DRIVER);
+            this.available = source.getBoolean(FIELD_AVAILABLE, true);
+            this.passengerId = source.getString(FIELD_PASSENGER_ID);
+        }
+    }
+
+    private static class RideUpdateRequest {
+        private String id;
+        private boolean available;
+        private String passengerId;
+
+        static RideUpdateRequest read(JsonReader reader) throws IOException {
+            RideUpdateRequest request = new RideUpdateRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_AVAILABLE -> request.available = Json.nextBoolean(reader, request.available);
+                    case FIELD_PASSENGER_ID -> request.passengerId = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+    }
+
+    private static void writeRide(JsonWriter writer, Document document) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_DRIVER).value(document.getString(FIELD_DRIVER));
+        writer.name(FIELD_AVAILABLE).value(document.getBoolean(FIELD_AVAILABLE, true));
+        writer.name(FIELD_PASSENGER_ID).value(document.getString(FIELD_PASSENGER_ID));
+        writer.endObject();
+    }
+
+    @Setup
+    public void setUp() {
+        rides = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            rides.add(new Document(FIELD_ID, Fixtures.id("r_", i))
+                    .append(FIELD_DRIVER, "d_bench")
+                    .append(FIELD_AVAILABLE, i % 2 == 0)
+                    .append(FIELD_PASSENGER_ID, i % 2 == 0 ? null : "u_bench"));
+        }
+        ride = rides.get(1);
+    }
+
+    @Benchmark
+    public String writeEntityGson() {
+        return gson.toJson(new RideSummary(ride));
+    }
+
+    @Benchmark
+    public String writeEntityStreaming() {
+        return Json.write(ride, JsonCodecBenchmark::writeRide);
+    }
+
+    @Benchmark
+    public String writeListGson() {
+        List<RideSummary> summaries = new ArrayList<>(rides.size());
+        for (Document document : rides) {
+            summaries.add(new RideSummary(document));
+        }
+        return gson.toJson(summaries);
+    }
+
+    @Benchmark
+    public String writeListStreaming() {
+        return Json.writeArray(rides, JsonCodecBenchmark::writeRide);
+    }
+
+    @Benchmark
+    public Object readRequestGson() {
+        return gson.fromJson(REQUEST_BODY, RideUpdateRequest.class);
+    }
+
+    @Benchmark
+    public Object readRequestStreaming() {
+        return Json.read(REQUEST_BODY, RideUpdateRequest::read);
+    }
+}
@@ -0,0 +1,184 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Drivers;
+import org.aygo.core.Json;
+import org.aygo.core.Page;
+import org.aygo.core.PageRequest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code k} nearest free drivers from {@code GET /drivers/nearest} (a {@code $nearSphere}
+ * query on the 2dsphere index) against the previous approach: paging through every free driver
+ * with {@code GET /drivers?busy=false} and keeping the nearest on the client. Drivers are spread
+ * over a box around Bogotá and every fourth one is busy. Response bytes are reported as the
+ * {@code bytes} counter; divide by {@code responses} for bytes per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NearestDriversBenchmark {
+    private static final String PATH = "/drivers";
+    private static final String PATH_NEAREST = PATH + "/nearest";
+    private static final String ENV_COLLECTION = "MONGO_DRIVERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final String ID_PREFIX = "d_";
+    private static final String MAX_PAGE_SIZE = "1000";
+    private static final int K = 5;
+    private static final double MIN_LAT = 4.45;
+    private static final double MIN_LNG = -74.25;
+    private static final double SPAN_DEGREES = 0.4;
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    @Param({"1000", "10000", "100000"})
+    private int documents;
+
+    private Drivers handler;
+    private double[][] positions;
+    private APIGatewayProxyRequestEvent[] nearestRequests;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long bytes;
+        public long responses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            responses = 0;
+        }
+
+        void record(APIGatewayProxyResponseEvent response) {
+            bytes += response.getBody().length();
+            responses++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        handler = new Drivers();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION), documents, NearestDriversBenchmark::document);
+        positions = new double[Fixtures.REQUEST_POOL_SIZE][];
+        nearestRequests = new APIGatewayProxyRequestEvent[Fixtures.REQUEST_POOL_SIZE];
+        for (int i = 0; i < positions.length; i++) {
+            double[] position = randomPosition();
+            positions[i] = position;
+            nearestRequests[i] = Fixtures.get(PATH_NEAREST, Map.of(
+                    "lat", Double.toString(position[0]),
+                    "lng", Double.toString(position[1]),
+                    "k", Integer.toString(K)));
+        }
+    }
+
+    private static double[] randomPosition() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new double[]{MIN_LAT + random.nextDouble() * SPAN_DEGREES, MIN_LNG + random.nextDouble() * SPAN_DEGREES};
+    }
+
+    private static Document document(int index) {
+        double[] position = randomPosition();
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("name", "Driver " + index)
+                .append("traveling", false)
+                .append("travel", null)
+                .append("busy", index % 4 == 0)
+                .append("car", "CAR-" + index)
+                .append("location", new Document("type", "Point").append("coordinates", List.of(position[1], position[0])));
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (Fixtures.REQUEST_POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent nearest(Transfer transfer) {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(nearestRequests[nextIndex()], null);
+        transfer.record(response);
+        return response;
+    }
+
+    @Benchmark
+    public PriorityQueue<double[]> fullScan(Transfer transfer) throws IOException {
+        double[] origin = positions[nextIndex()];
+        // Farthest first, so the head is the one to drop when a nearer driver shows up
+        PriorityQueue<double[]> nearest = new PriorityQueue<>(K + 1, Comparator.comparingDouble((double[] candidate) -> candidate[0]).reversed());
+        String after = null;
+        do {
+            Map<String, String> parameters = after == null
+                    ? Map.of("busy", "false", PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE)
+                    : Map.of("busy", "false", PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE, PageRequest.QUERY_PARAM_AFTER, after);
+            APIGatewayProxyResponseEvent response = handler.handleRequest(Fixtures.get(PATH, parameters), null);
+            transfer.record(response);
+            keepNearest(response.getBody(), origin, nearest);
+            after = response.getHeaders() == null ? null : response.getHeaders().get(Page.HEADER_NEXT_CURSOR);
+        } while (after != null);
+        return nearest;
+    }
+
+    private static void keepNearest(String body, double[] origin, PriorityQueue<double[]> nearest) throws IOException {
+        try (JsonReader reader = Json.gson().newJsonReader(new StringReader(body))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                double lat = Double.NaN;
+                double lng = Double.NaN;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "lat" -> lat = Json.nextDouble(reader, Double.NaN);
+                        case "lng" -> lng = Json.nextDouble(reader, Double.NaN);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (!Double.isNaN(lat) && !Double.isNaN(lng)) {
+                    nearest.add(new double[]{distance(origin[0], origin[1], lat, lng), lat, lng});
+                    if (nearest.size() > K) {
+                        nearest.poll();
+                    }
+                }
+            }
+            reader.endArray();
+        }
+    }
+
+    private static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,149 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Payments;
+import org.aygo.core.Json;
+import org.aygo.core.Page;
+import org.aygo.core.PageRequest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals per user computed by {@code GET /payments/reports/users} (an aggregation pipeline) against
+ * the previous approach: paging through {@code GET /payments} with the largest page and summing on
+ * the client. The report range covers every seeded payment, so both produce the same totals.
+ * Response bytes are reported as the {@code bytes} counter; divide by {@code responses} for bytes
+ * per report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PaymentReportBenchmark {
+    private static final String PATH = "/payments";
+    private static final String PATH_REPORT_USERS = PATH + "/reports/users";
+    private static final String ENV_COLLECTION = "MONGO_PAYMENTS_COLLECTION";
+    private static final String ID_PREFIX = "pay_";
+    private static final String USER_PREFIX = "u_";
+    private static final String RIDE_PREFIX = "r_";
+    private static final int USERS = 1000;
+    private static final String MAX_PAGE_SIZE = "1000";
+    private static final long START_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long SPACING_MILLIS = 60_000;
+
+    @Param({"10000", "100000"})
+    private int documents;
+
+    private Payments handler;
+    private APIGatewayProxyRequestEvent reportRequest;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long bytes;
+        public long responses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            responses = 0;
+        }
+
+        void record(APIGatewayProxyResponseEvent response) {
+            bytes += response.getBody().length();
+            responses++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        handler = new Payments();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION), documents, PaymentReportBenchmark::document);
+        reportRequest = Fixtures.get(PATH_REPORT_USERS, Map.of(
+                "from", Instant.ofEpochMilli(START_MILLIS).toString(),
+                "to", Instant.ofEpochMilli(START_MILLIS + (long) documents * SPACING_MILLIS).toString()));
+    }
+
+    private static Document document(int index) {
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("userId", Fixtures.id(USER_PREFIX, index % USERS))
+                .append("amount", 5.0 + index % 20)
+                .append("processed", index % 2 == 0)
+                .append("transactionId", index % 2 == 0 ? "txn_bench" : null)
+                .append("rideId", Fixtures.id(RIDE_PREFIX, index / 2))
+                .append("createdAt", new Date(START_MILLIS + index * SPACING_MILLIS))
+                .append("processedAt", null)
+                .append("version", 1L);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent serverSide(Transfer transfer) {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(reportRequest, null);
+        transfer.record(response);
+        return response;
+    }
+
+    @Benchmark
+    public Map<String, Double> clientSide(Transfer transfer) throws IOException {
+        Map<String, Double> totals = new HashMap<>();
+        String after = null;
+        do {
+            Map<String, String> parameters = after == null
+                    ? Map.of(PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE)
+                    : Map.of(PageRequest.QUERY_PARAM_LIMIT, MAX_PAGE_SIZE, PageRequest.QUERY_PARAM_AFTER, after);
+            APIGatewayProxyResponseEvent response = handler.handleRequest(Fixtures.get(PATH, parameters), null);
+            transfer.record(response);
+            sum(response.getBody(), totals);
+            after = response.getHeaders() == null ? null : response.getHeaders().get(Page.HEADER_NEXT_CURSOR);
+        } while (after != null);
+        return totals;
+    }
+
+    private static void sum(String body, Map<String, Double> totals) throws IOException {
+        try (JsonReader reader = Json.gson().newJsonReader(new StringReader(body))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String userId = null;
+                double amount = 0;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "userId" -> userId = Json.nextString(reader);
+                        case "amount" -> amount = Json.nextDouble(reader, 0);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                totals.merge(userId, amount, Double::sum);
+            }
+            reader.endArray();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Payments;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentsBenchmark {
+    private static final String PATH = "/payments";
+    private static final String ENV_COLLECTION = "MONGO_PAYMENTS_COLLECTION";
+    private static final String ID_PREFIX = "pay_";
+
+    @Param({"100", "10000", "100000"})
+    private int documents;
+
+    private Payments handler;
+    private APIGatewayProxyRequestEvent[] getRequests;
+    private APIGatewayProxyRequestEvent[] updateRequests;
+    private APIGatewayProxyRequestEvent listRequest;
+    private APIGatewayProxyRequestEvent createRequest;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        handler = new Payments();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION), documents, PaymentsBenchmark::document);
+        getRequests = Fixtures.pool(documents, index -> Fixtures.get(PATH, Map.of("id", Fixtures.id(ID_PREFIX, index))));
+        updateRequests = Fixtures.pool(documents, index -> Fixtures.put(PATH, updateBody(index)));
+        listRequest = Fixtures.list(PATH);
+        createRequest = Fixtures.post(PATH, "{\"userId\":\"u_bench\",\"amount\":12.5,\"rideId\":\"r_bench\"}");
+    }
+
+    private static Document document(int index) {
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("userId", "u_bench")
+                .append("amount", 12.5)
+                .append("processed", false)
+                .append("transactionId", null)
+                .append("rideId", "r_bench")
+                .append("version", 1L);
+    }
+
+    private static String updateBody(int index) {
+        return "{\"id\":\"" + Fixtures.id(ID_PREFIX, index) + "\",\"processed\":true,\"transactionId\":\"txn_bench\",\"rideId\":\"r_bench\"}";
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (Fixtures.REQUEST_POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getById() {
+        return handler.handleRequest(getRequests[nextIndex()], null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent list() {
+        return handler.handleRequest(listRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent create() {
+        return handler.handleRequest(createRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent update() {
+        return handler.handleRequest(updateRequests[nextIndex()], null);
+    }
+}
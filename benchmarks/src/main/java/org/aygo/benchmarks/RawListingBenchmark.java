@@ -0,0 +1,137 @@
+package org.aygo.benchmarks;
+
+import com.google.gson.stream.JsonWriter;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+import org.aygo.core.Json;
+import org.aygo.core.RawDocumentWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a 100k-document payments listing to JSON through the {@code Document} decode path and
+ * through the {@link RawBsonDocument} pass-through used by the list endpoints, with the same
+ * projection and sort. Output goes to a discarding writer so only decoding and encoding are
+ * measured; run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RawListingBenchmark {
+    private static final String ENV_COLLECTION = "MONGO_PAYMENTS_COLLECTION";
+    private static final String ID_PREFIX = "pay_";
+    private static final int DOCUMENTS = 100_000;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_PROCESSED = "processed";
+    private static final String FIELD_TRANSACTION_ID = "transactionId";
+    private static final String FIELD_RIDE_ID = "rideId";
+
+    private static final Bson PROJECTION = Projections.fields(
+            Projections.include(FIELD_ID, FIELD_USER_ID, FIELD_AMOUNT, FIELD_PROCESSED, FIELD_TRANSACTION_ID, FIELD_RIDE_ID),
+            Projections.excludeId()
+    );
+    private static final RawDocumentWriter RAW_WRITER = RawDocumentWriter.builder()
+            .string(FIELD_ID)
+            .string(FIELD_USER_ID)
+            .number(FIELD_AMOUNT)
+            .bool(FIELD_PROCESSED, false)
+            .string(FIELD_TRANSACTION_ID)
+            .string(FIELD_RIDE_ID)
+            .build();
+
+    private MongoCollection<Document> collection;
+
+    @Setup
+    public void setUp() {
+        collection = Fixtures.collection(ENV_COLLECTION);
+        Fixtures.seed(collection, DOCUMENTS, RawListingBenchmark::document);
+    }
+
+    private static Document document(int index) {
+        return new Document(FIELD_ID, Fixtures.id(ID_PREFIX, index))
+                .append(FIELD_USER_ID, "u_bench")
+                .append(FIELD_AMOUNT, 12.5)
+                .append(FIELD_PROCESSED, index % 2 == 0)
+                .append(FIELD_TRANSACTION_ID, index % 2 == 0 ? "txn_bench" : null)
+                .append(FIELD_RIDE_ID, "r_bench")
+                .append("version", 1L);
+    }
+
+    private static void writePayment(JsonWriter writer, Document document) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_USER_ID).value(document.getString(FIELD_USER_ID));
+        writer.name(FIELD_AMOUNT).value(document.getDouble(FIELD_AMOUNT));
+        writer.name(FIELD_PROCESSED).value(document.getBoolean(FIELD_PROCESSED, false));
+        writer.name(FIELD_TRANSACTION_ID).value(document.getString(FIELD_TRANSACTION_ID));
+        writer.name(FIELD_RIDE_ID).value(document.getString(FIELD_RIDE_ID));
+        writer.endObject();
+    }
+
+    @Benchmark
+    public int listDocuments() throws IOException {
+        int count = 0;
+        try (JsonWriter writer = Json.gson().newJsonWriter(Writer.nullWriter());
+             MongoCursor<Document> cursor = collection.find()
+                     .projection(PROJECTION)
+                     .sort(Sorts.ascending(FIELD_ID))
+                     .batchSize(BATCH_SIZE)
+                     .iterator()) {
+            writer.beginArray();
+            while (cursor.hasNext()) {
+                writePayment(writer, cursor.next());
+                count++;
+            }
+            writer.endArray();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int listRaw() throws IOException {
+        int count = 0;
+        try (JsonWriter writer = Json.gson().newJsonWriter(Writer.nullWriter());
+             MongoCursor<RawBsonDocument> cursor = collection.withDocumentClass(RawBsonDocument.class)
+                     .find()
+                     .projection(RAW_WRITER.projection())
+                     .sort(Sorts.ascending(FIELD_ID))
+                     .batchSize(BATCH_SIZE)
+                     .iterator()) {
+            writer.beginArray();
+            while (cursor.hasNext()) {
+                RAW_WRITER.write(writer, cursor.next());
+                count++;
+            }
+            writer.endArray();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,114 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.aygo.core.EmfMetrics;
+import org.aygo.core.HttpStatus;
+import org.aygo.core.RequestMetrics;
+import org.aygo.core.Responses;
+import org.aygo.core.Router;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the shared request pipeline with the route itself reduced to returning a
+ * fixed body, so no Mongo is needed. {@code inlineDispatch} is the method if-chain and response
+ * construction every handler carried before the core module; {@code router} is {@link Router}
+ * without metrics and {@code routerWithMetrics} adds {@link EmfMetrics} with the default flush
+ * interval, writing to memory; {@code routerFlushingEveryRequest} flushes at the end of every request
+ * instead, to show what the interval saves. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm} for the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestPipelineBenchmark {
+    private static final String PATH = "/users";
+    private static final String BODY = "{\"id\":\"u_00000001\",\"name\":\"User 1\",\"traveling\":false,\"travel\":null}";
+    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
+    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
+    private static final long FLUSH_EVERY_REQUEST = 0;
+
+    private Router router;
+    private Router routerWithMetrics;
+    private Router routerFlushingEveryRequest;
+    private long flushedBytes;
+    private APIGatewayProxyRequestEvent getRequest;
+
+    @Setup
+    public void setUp() {
+        router = routes(Router.builder()).metrics(RequestMetrics.NOOP).build();
+        routerWithMetrics = routes(Router.builder()).metrics(metrics(EmfMetrics.DEFAULT_FLUSH_MILLIS)).build();
+        routerFlushingEveryRequest = routes(Router.builder()).metrics(metrics(FLUSH_EVERY_REQUEST)).build();
+        getRequest = Fixtures.get(PATH, Map.of("id", "u_00000001"));
+    }
+
+    private EmfMetrics metrics(long flushMillis) {
+        return new EmfMetrics(true, line -> flushedBytes += line.length(), flushMillis, "aygo", "benchmark");
+    }
+
+    private static Router.Builder routes(Router.Builder builder) {
+        return builder
+                .get("/nearest", input -> Responses.ok(BODY))
+                .get(input -> Responses.ok(BODY))
+                .post(input -> Responses.created(BODY))
+                .put(input -> Responses.ok(BODY));
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent inlineDispatch() {
+        try {
+            String method = getRequest.getHttpMethod();
+            if (Router.HTTP_METHOD_GET.equals(method)) {
+                return response(HttpStatus.OK, BODY);
+            }
+            if (Router.HTTP_METHOD_POST.equals(method)) {
+                return response(HttpStatus.CREATED, BODY);
+            }
+            if (Router.HTTP_METHOD_PUT.equals(method)) {
+                return response(HttpStatus.OK, BODY);
+            }
+            return response(HttpStatus.METHOD_NOT_ALLOWED, MESSAGE_METHOD_NOT_ALLOWED);
+        } catch (RuntimeException exception) {
+            return response(HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
+        }
+    }
+
+    private static APIGatewayProxyResponseEvent response(int statusCode, String body) {
+        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
+        responseEvent.setStatusCode(statusCode);
+        responseEvent.setBody(body);
+        return responseEvent;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent router() {
+        return router.handle(getRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent routerWithMetrics() {
+        return routerWithMetrics.handle(getRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent routerFlushingEveryRequest() {
+        return routerFlushingEveryRequest.handle(getRequest, null);
+    }
+}
@@ -0,0 +1,108 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.LocalServer;
+import org.aygo.Users;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code GET /users?id=} under 16 concurrent clients, served either by one handler
+ * instance taking one request at a time, as a single Lambda instance does, or by {@link LocalServer}
+ * over HTTP on the same machine. The server path includes HTTP and loopback costs the Lambda path
+ * does not, so the comparison favours Lambda. Set {@code CACHE_TTL_MILLIS=0} to keep every request
+ * on Mongo, and {@code MONGO_MAX_POOL_SIZE} to at least the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ServerLoadBenchmark {
+    private static final String PATH = "/users";
+    private static final String ENV_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final String ID_PREFIX = "u_";
+    private static final int DOCUMENTS = 10_000;
+    private static final int MAX_CONCURRENCY = 64;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+
+    private final Object instanceLock = new Object();
+    private Users handler;
+    private LocalServer server;
+    private HttpClient client;
+    private APIGatewayProxyRequestEvent[] events;
+    private HttpRequest[] requests;
+
+    @Setup
+    public void setUp() throws IOException {
+        handler = new Users();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION), DOCUMENTS, ServerLoadBenchmark::document);
+        server = new LocalServer(Map.of(PATH, handler), MAX_CONCURRENCY, ACQUIRE_TIMEOUT_MILLIS);
+        InetSocketAddress address = server.start(0);
+        client = HttpClient.newHttpClient();
+        events = new APIGatewayProxyRequestEvent[Fixtures.REQUEST_POOL_SIZE];
+        requests = new HttpRequest[Fixtures.REQUEST_POOL_SIZE];
+        for (int i = 0; i < Fixtures.REQUEST_POOL_SIZE; i++) {
+            String id = Fixtures.id(ID_PREFIX, ThreadLocalRandom.current().nextInt(DOCUMENTS));
+            events[i] = Fixtures.get(PATH, Map.of("id", id));
+            requests[i] = HttpRequest.newBuilder(URI.create(
+                    "http://localhost:" + address.getPort() + PATH + "?id=" + id)).GET().build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    private static Document document(int index) {
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("name", "User " + index)
+                .append("traveling", false)
+                .append("travel", null);
+    }
+
+    private static int nextIndex() {
+        return ThreadLocalRandom.current().nextInt(Fixtures.REQUEST_POOL_SIZE);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent singleLambdaInstance() {
+        synchronized (instanceLock) {
+            return handler.handleRequest(events[nextIndex()], null);
+        }
+    }
+
+    @Benchmark
+    public int localServer() throws IOException, InterruptedException {
+        return client.send(requests[nextIndex()], HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+}
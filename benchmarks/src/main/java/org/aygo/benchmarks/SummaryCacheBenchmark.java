@@ -0,0 +1,123 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Drivers;
+import org.aygo.Users;
+import org.aygo.core.SummaryCache;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clients polling {@code GET /users?id=} and {@code GET /drivers?id=} for {@code polledIds} of the
+ * {@value #DOCUMENTS} seeded ids in turn: a hot set well inside {@code CACHE_MAX_ENTRIES}, and one
+ * larger than it, which the LRU evicts before each id comes round again. The {@code hits} and
+ * {@code misses} counters come from the {@code X-Cache} header, so {@code hits / (hits + misses)}
+ * is the hit rate of the timed requests. The cache is configured once per JVM from the environment,
+ * so run the suite twice, as is and with {@code CACHE_TTL_MILLIS=0}, to compare cache on and off;
+ * with the cache off every request is a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SummaryCacheBenchmark {
+    private static final String USERS_PATH = "/users";
+    private static final String DRIVERS_PATH = "/drivers";
+    private static final String USER_PREFIX = "u_";
+    private static final String DRIVER_PREFIX = "d_";
+    private static final int DOCUMENTS = 10_000;
+
+    @Param({"16", "10000"})
+    private int polledIds;
+
+    private Users users;
+    private Drivers drivers;
+    private APIGatewayProxyRequestEvent[] userRequests;
+    private APIGatewayProxyRequestEvent[] driverRequests;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+
+        void record(APIGatewayProxyResponseEvent response) {
+            if (SummaryCache.CACHE_HIT.equals(response.getHeaders().get(SummaryCache.HEADER_CACHE))) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        users = new Users();
+        drivers = new Drivers();
+        Fixtures.seed(Fixtures.collection("MONGO_USERS_COLLECTION", "MONGO_COLLECTION"), DOCUMENTS, index ->
+                new Document("id", Fixtures.id(USER_PREFIX, index))
+                        .append("name", "User " + index)
+                        .append("traveling", false)
+                        .append("travel", null));
+        Fixtures.seed(Fixtures.collection("MONGO_DRIVERS_COLLECTION", "MONGO_COLLECTION"), DOCUMENTS, index ->
+                new Document("id", Fixtures.id(DRIVER_PREFIX, index))
+                        .append("name", "Driver " + index)
+                        .append("traveling", false)
+                        .append("travel", null)
+                        .append("busy", false)
+                        .append("car", "CAR-" + index));
+        userRequests = new APIGatewayProxyRequestEvent[polledIds];
+        driverRequests = new APIGatewayProxyRequestEvent[polledIds];
+        for (int i = 0; i < polledIds; i++) {
+            userRequests[i] = Fixtures.get(USERS_PATH, Map.of("id", Fixtures.id(USER_PREFIX, i)));
+            driverRequests[i] = Fixtures.get(DRIVERS_PATH, Map.of("id", Fixtures.id(DRIVER_PREFIX, i)));
+        }
+    }
+
+    private int nextIndex() {
+        next = next + 1 == polledIds ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getUser(Lookups lookups) {
+        APIGatewayProxyResponseEvent response = users.handleRequest(userRequests[nextIndex()], null);
+        lookups.record(response);
+        return response;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getDriver(Lookups lookups) {
+        APIGatewayProxyResponseEvent response = drivers.handleRequest(driverRequests[nextIndex()], null);
+        lookups.record(response);
+        return response;
+    }
+}
@@ -0,0 +1,86 @@
+package org.aygo.benchmarks;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The travel update behind {@code PUT /users} written as one {@code findOneAndUpdate} returning
+ * the post-image, against the previous {@code updateOne} followed by a {@code find} on id. Runs in
+ * sample mode, so JMH reports the latency percentiles of each variant and not only the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UpdateRoundTripBenchmark {
+    private static final String ENV_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final String ID_PREFIX = "u_";
+    private static final FindOneAndUpdateOptions RETURN_UPDATED = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    @Param({"10000", "100000"})
+    private int documents;
+
+    private MongoCollection<Document> users;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        users = Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION);
+        Fixtures.seed(users, documents, index -> new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("name", "User " + index)
+                .append("traveling", false)
+                .append("travel", null));
+        ids = new String[Fixtures.REQUEST_POOL_SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Fixtures.id(ID_PREFIX, ThreadLocalRandom.current().nextInt(documents));
+        }
+    }
+
+    private String nextId() {
+        next = (next + 1) & (Fixtures.REQUEST_POOL_SIZE - 1);
+        return ids[next];
+    }
+
+    private static Bson travelUpdate() {
+        return Updates.combine(Updates.set("traveling", true), Updates.set("travel", "r_bench"));
+    }
+
+    @Benchmark
+    public Document findOneAndUpdate() {
+        return users.findOneAndUpdate(Filters.eq("id", nextId()), travelUpdate(), RETURN_UPDATED);
+    }
+
+    @Benchmark
+    public Document updateOneThenFind() {
+        String id = nextId();
+        if (users.updateOne(Filters.eq("id", id), travelUpdate()).getMatchedCount() == 0) {
+            return null;
+        }
+        return users.find(Filters.eq("id", id)).first();
+    }
+}
@@ -0,0 +1,92 @@
+package org.aygo.benchmarks;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bson.Document;
+
+import org.aygo.Users;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UsersBenchmark {
+    private static final String PATH = "/users";
+    private static final String ENV_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_FALLBACK_COLLECTION = "MONGO_COLLECTION";
+    private static final String ID_PREFIX = "u_";
+
+    @Param({"100", "10000", "100000"})
+    private int documents;
+
+    private Users handler;
+    private APIGatewayProxyRequestEvent[] getRequests;
+    private APIGatewayProxyRequestEvent[] updateRequests;
+    private APIGatewayProxyRequestEvent listRequest;
+    private APIGatewayProxyRequestEvent createRequest;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        handler = new Users();
+        Fixtures.seed(Fixtures.collection(ENV_COLLECTION, ENV_FALLBACK_COLLECTION), documents, UsersBenchmark::document);
+        getRequests = Fixtures.pool(documents, index -> Fixtures.get(PATH, Map.of("id", Fixtures.id(ID_PREFIX, index))));
+        updateRequests = Fixtures.pool(documents, index -> Fixtures.put(PATH, updateBody(index)));
+        listRequest = Fixtures.list(PATH);
+        createRequest = Fixtures.post(PATH, "{\"name\":\"Benchmark User\"}");
+    }
+
+    private static Document document(int index) {
+        return new Document("id", Fixtures.id(ID_PREFIX, index))
+                .append("name", "User " + index)
+                .append("traveling", false)
+                .append("travel", null);
+    }
+
+    private static String updateBody(int index) {
+        return "{\"id\":\"" + Fixtures.id(ID_PREFIX, index) + "\",\"traveling\":true,\"rideId\":\"r_bench\"}";
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (Fixtures.REQUEST_POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getById() {
+        return handler.handleRequest(getRequests[nextIndex()], null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent list() {
+        return handler.handleRequest(listRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent create() {
+        return handler.handleRequest(createRequest, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent update() {
+        return handler.handleRequest(updateRequests[nextIndex()], null);
+    }
+}
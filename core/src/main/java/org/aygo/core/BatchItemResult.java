@@ -0,0 +1,27 @@
+package org.aygo.core;
+
+/**
+ * Outcome of one item of a batch request, reported at the item's position in the request array.
+ */
+@SuppressWarnings("unused")
+public final class BatchItemResult {
+    private final int index;
+    private final int status;
+    private final String id;
+    private final String error;
+
+    BatchItemResult(int index, int status, String id, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,141 @@
+package org.aygo.core;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.WriteModel;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the valid items of a batch request and writes them with a single unordered
+ * {@code bulkWrite}, so one failing item does not stop the rest. Items rejected during validation
+ * and items the server refuses are reported individually; everything else gets the success status.
+ * Batches that must write item by item record each outcome with {@link #updated} or
+ * {@link #failed} instead and read them back with {@link #results}.
+ */
+public final class BatchWriter {
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final String FIELD_ID = "id";
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private static final String MESSAGE_DUPLICATE_KEY = "Duplicate id";
+    private static final String MESSAGE_NOT_FOUND = "Not found";
+
+    private final MongoCollection<Document> collection;
+    private final BatchItemResult[] results;
+    private final List<Integer> positions = new ArrayList<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<WriteModel<Document>> models = new ArrayList<>();
+
+    public BatchWriter(MongoCollection<Document> collection, int itemCount) {
+        this.collection = collection;
+        this.results = new BatchItemResult[itemCount];
+    }
+
+    public void reject(int index, String message) {
+        results[index] = new BatchItemResult(index, HttpStatus.BAD_REQUEST, null, message);
+    }
+
+    public void add(int index, String id, WriteModel<Document> model) {
+        positions.add(index);
+        ids.add(id);
+        models.add(model);
+    }
+
+    /**
+     * Records the outcome of an item the caller wrote on its own, for batches whose items each need
+     * their own round trip: {@code found} gives 200, otherwise 404.
+     */
+    public void updated(int index, String id, boolean found) {
+        results[index] = found
+                ? new BatchItemResult(index, HttpStatus.OK, id, null)
+                : new BatchItemResult(index, HttpStatus.NOT_FOUND, id, MESSAGE_NOT_FOUND);
+    }
+
+    public void failed(int index, String id, String message) {
+        results[index] = new BatchItemResult(index, HttpStatus.INTERNAL_ERROR, id, message);
+    }
+
+    /**
+     * The results recorded through {@link #reject}, {@link #updated} and {@link #failed}, without
+     * writing anything.
+     */
+    public List<BatchItemResult> results() {
+        return Arrays.asList(results);
+    }
+
+    public List<BatchItemResult> insert() {
+        execute(HttpStatus.CREATED);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Applies the collected updates. Updates report matches only in aggregate, so when fewer
+     * documents matched than were written the missing ids are resolved with one extra query.
+     */
+    public List<BatchItemResult> update() {
+        BulkWriteResult writeResult = execute(HttpStatus.OK);
+        int applied = 0;
+        for (int position : positions) {
+            if (results[position].getStatus() == HttpStatus.OK) {
+                applied++;
+            }
+        }
+        if (writeResult != null && writeResult.getMatchedCount() < applied) {
+            markMissing();
+        }
+        return Arrays.asList(results);
+    }
+
+    private BulkWriteResult execute(int successStatus) {
+        if (models.isEmpty()) {
+            return null;
+        }
+        BulkWriteResult writeResult;
+        List<BulkWriteError> errors = List.of();
+        try {
+            writeResult = collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException exception) {
+            writeResult = exception.getWriteResult();
+            errors = exception.getWriteErrors();
+        }
+        for (int i = 0; i < models.size(); i++) {
+            results[positions.get(i)] = new BatchItemResult(positions.get(i), successStatus, ids.get(i), null);
+        }
+        for (BulkWriteError error : errors) {
+            int position = positions.get(error.getIndex());
+            boolean duplicate = error.getCode() == DUPLICATE_KEY_ERROR;
+            results[position] = new BatchItemResult(
+                    position,
+                    duplicate ? HttpStatus.CONFLICT : HttpStatus.INTERNAL_ERROR,
+                    ids.get(error.getIndex()),
+                    duplicate ? MESSAGE_DUPLICATE_KEY : error.getMessage());
+        }
+        return writeResult;
+    }
+
+    private void markMissing() {
+        Set<String> existing = new HashSet<>();
+        collection.find(Filters.in(FIELD_ID, ids))
+                .projection(Projections.fields(Projections.include(FIELD_ID), Projections.excludeId()))
+                .forEach(document -> existing.add(document.getString(FIELD_ID)));
+        for (int i = 0; i < models.size(); i++) {
+            int position = positions.get(i);
+            if (results[position].getStatus() == HttpStatus.OK && !existing.contains(ids.get(i))) {
+                results[position] = new BatchItemResult(position, HttpStatus.NOT_FOUND, ids.get(i), MESSAGE_NOT_FOUND);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.mongodb.MongoClientSettings;
+
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Checkpoint/restore hooks for SnapStart and CRaC JVMs, registered through {@code org.crac}, which
+ * is a no-op on JVMs without checkpoint support.
+ *
+ * <p>Before a checkpoint, every registered handler is sent a fixed set of read-only requests (a
+ * one-item list, a lookup of an id that does not exist, and a create and an update with an empty
+ * body), so the routing, codec and serialisation classes are loaded and compiled into the image
+ * rather than on the first real request. Metrics recorded until then are flushed and those of
+ * the priming requests discarded, then the Mongo client is closed so no socket is open at
+ * checkpoint time. After a restore a new pool is opened behind the same client wrapper, and the
+ * restore time is reported through {@link Startup}.
+ */
+public final class Checkpoints {
+    private static final String PRIME_ID = "__checkpoint_prime__";
+    private static final String EMPTY_BODY = "{}";
+
+    private static final RawDocumentWriter PRIME_WRITER = RawDocumentWriter.builder()
+            .string("id")
+            .bool("available", false)
+            .number("amount")
+            .build();
+
+    private static final List<Runnable> PRIMERS = new CopyOnWriteArrayList<>();
+
+    private static final Resource MONGO_RESOURCE = new Resource() {
+        @Override
+        public void beforeCheckpoint(Context<? extends Resource> context) {
+            EmfMetrics.instance().flush();
+            prime();
+            EmfMetrics.instance().discard();
+            MongoSupport.close();
+        }
+
+        @Override
+        public void afterRestore(Context<? extends Resource> context) {
+            long startNanos = System.nanoTime();
+            MongoSupport.reopen();
+            Startup.restored(System.nanoTime() - startNanos);
+        }
+    };
+
+    private static boolean installed;
+
+    private Checkpoints() {
+    }
+
+    /**
+     * Registers the Mongo resource once per JVM. The global CRaC context only keeps weak
+     * references, so the resource is held in a static field here.
+     */
+    static synchronized void install() {
+        if (!installed) {
+            Core.getGlobalContext().register(MONGO_RESOURCE);
+            installed = true;
+        }
+    }
+
+    /**
+     * Registers {@code handler} to be exercised before a checkpoint with requests on {@code path}.
+     */
+    public static void prime(RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler,
+                             String path) {
+        PRIMERS.add(() -> {
+            handler.handleRequest(request(Router.HTTP_METHOD_GET, path,
+                    Map.of(PageRequest.QUERY_PARAM_LIMIT, "1"), null), null);
+            handler.handleRequest(request(Router.HTTP_METHOD_GET, path, Map.of("id", PRIME_ID), null), null);
+            handler.handleRequest(request(Router.HTTP_METHOD_POST, path, null, EMPTY_BODY), null);
+            handler.handleRequest(request(Router.HTTP_METHOD_PUT, path, null, EMPTY_BODY), null);
+        });
+    }
+
+    static void prime() {
+        Startup.suspend(true);
+        try {
+            primeCodecs();
+            for (Runnable primer : PRIMERS) {
+                primer.run();
+            }
+        } catch (RuntimeException exception) {
+            System.err.println("Checkpoint priming failed: " + exception.getMessage());
+        } finally {
+            Startup.suspend(false);
+        }
+    }
+
+    /**
+     * Round-trips a document through the raw BSON and JSON paths, which list responses use but a
+     * priming request against an empty collection would not reach.
+     */
+    private static void primeCodecs() {
+        Codec<Document> codec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+        RawBsonDocument raw = new RawBsonDocument(
+                new Document("id", PRIME_ID).append("available", true).append("amount", 1.0), codec);
+        try (BsonBinaryReader reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+            codec.decode(reader, DecoderContext.builder().build());
+        }
+        Json.writeRawArray(List.of(raw), PRIME_WRITER);
+    }
+
+    private static APIGatewayProxyRequestEvent request(String method, String path, Map<String, String> parameters,
+                                                       String body) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(method)
+                .withPath(path)
+                .withQueryStringParameters(parameters)
+                .withBody(body);
+    }
+}
@@ -0,0 +1,12 @@
+package org.aygo.core;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.bson.Document;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface DocumentWriter {
+    void write(JsonWriter writer, Document document) throws IOException;
+}
@@ -0,0 +1,60 @@
+package org.aygo.core;
+
+import org.bson.Document;
+
+import java.util.Map;
+
+/**
+ * Entity tags derived from the {@code version} counter stored on each document and bumped on
+ * every write, so a conditional GET can be answered from a projection on that single field.
+ */
+public final class ETags {
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String FIELD_VERSION = "version";
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static Map<String, String> headers(String etag) {
+        return Map.of(HEADER_ETAG, etag);
+    }
+
+    public static Map<String, String> headersFor(Document document) {
+        return headers(of(versionOf(document)));
+    }
+
+    /**
+     * Reads the version counter of a document; documents written before versioning count as 0.
+     */
+    public static long versionOf(Document document) {
+        Object version = document.get(FIELD_VERSION);
+        return version instanceof Number ? ((Number) version).longValue() : 0L;
+    }
+
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (ANY.equals(tag)) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,278 @@
+package org.aygo.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request, phase and Mongo command metrics aggregated in memory and flushed as CloudWatch Embedded
+ * Metric Format lines. Recording only touches an HDR {@link Recorder} or a {@link LongAdder}; the
+ * percentiles are computed and written at the end of the invocation that crosses the flush
+ * interval ({@code METRICS_FLUSH_MILLIS}, 10 s by default), so no background thread is needed while
+ * the Lambda container is frozen and the other invocations pay nothing for the write. What is still
+ * pending when the JVM shuts down, or before a SnapStart checkpoint, is written by a shutdown hook
+ * and by {@link Checkpoints}.
+ *
+ * <p>Each flush writes one line per route with the {@code Service} and {@code Route} dimensions.
+ * Timers are reported as {@code <name>.p50}, {@code .p90}, {@code .p99} and {@code .max} in
+ * milliseconds; Mongo commands are timed under {@code Mongo.<command>}, except the
+ * {@code explain} commands of {@link QueryPlanVerifier}. Disabled with
+ * {@code METRICS_ENABLED=false}.
+ */
+public final class EmfMetrics implements RequestMetrics, CommandListener {
+    public static final String ENV_METRICS_ENABLED = "METRICS_ENABLED";
+    public static final String ENV_METRICS_NAMESPACE = "METRICS_NAMESPACE";
+    public static final String ENV_METRICS_FLUSH_MILLIS = "METRICS_FLUSH_MILLIS";
+
+    private static final String ENV_FUNCTION_NAME = "AWS_LAMBDA_FUNCTION_NAME";
+    private static final String DEFAULT_NAMESPACE = "aygo";
+    private static final String DEFAULT_SERVICE = "local";
+    public static final long DEFAULT_FLUSH_MILLIS = 10_000;
+
+    private static final String TIMER_LATENCY = "Latency";
+    private static final String TIMER_MONGO_PREFIX = "Mongo.";
+    private static final String COUNTER_REQUESTS = "Requests";
+    private static final String COUNTER_CLIENT_ERRORS = "ClientErrors";
+    private static final String COUNTER_SERVER_ERRORS = "ServerErrors";
+    private static final String COUNTER_MONGO_FAILURES = "MongoFailures";
+    private static final String ROUTE_OUTSIDE_REQUEST = "none";
+    private static final String COMMAND_EXPLAIN = "explain";
+
+    private static final String DIMENSION_SERVICE = "Service";
+    private static final String DIMENSION_ROUTE = "Route";
+    private static final String UNIT_MILLISECONDS = "Milliseconds";
+    private static final String UNIT_COUNT = "Count";
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+
+    private static final EmfMetrics INSTANCE = new EmfMetrics(
+            !"false".equalsIgnoreCase(System.getenv(ENV_METRICS_ENABLED)),
+            MetricsSink.STDOUT,
+            MongoSupport.envLong(ENV_METRICS_FLUSH_MILLIS, DEFAULT_FLUSH_MILLIS),
+            envOrDefault(ENV_METRICS_NAMESPACE, DEFAULT_NAMESPACE),
+            envOrDefault(ENV_FUNCTION_NAME, DEFAULT_SERVICE));
+
+    static {
+        if (INSTANCE.enabled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::flush, "emf-metrics-flush"));
+        }
+    }
+
+    private final boolean enabled;
+    private final MetricsSink sink;
+    private final long flushIntervalNanos;
+    private final String namespace;
+    private final String service;
+    private final Map<String, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+    private final AtomicLong lastFlushNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * A recorder and the interval histogram handed back to it on every flush, so flushing does not
+     * allocate a new histogram per timer.
+     */
+    private static final class Timer {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        Histogram sample() {
+            interval = recorder.getIntervalHistogram(interval);
+            return interval;
+        }
+    }
+
+    public EmfMetrics(boolean enabled, MetricsSink sink, long flushIntervalMillis, String namespace, String service) {
+        this.enabled = enabled;
+        this.sink = sink;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.namespace = namespace;
+        this.service = service;
+    }
+
+    public static EmfMetrics instance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void record(String method, String route, int statusCode, long elapsedNanos) {
+        if (!enabled) {
+            return;
+        }
+        String name = routeName(method, route);
+        recordTimer(name, TIMER_LATENCY, elapsedNanos);
+        increment(name, COUNTER_REQUESTS);
+        if (statusCode >= HttpStatus.INTERNAL_ERROR) {
+            increment(name, COUNTER_SERVER_ERRORS);
+        } else if (statusCode >= HttpStatus.BAD_REQUEST) {
+            increment(name, COUNTER_CLIENT_ERRORS);
+        }
+        flushIfDue();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (enabled && !COMMAND_EXPLAIN.equals(event.getCommandName())) {
+            recordTimer(currentRoute(), TIMER_MONGO_PREFIX + event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        if (enabled && !COMMAND_EXPLAIN.equals(event.getCommandName())) {
+            String route = currentRoute();
+            recordTimer(route, TIMER_MONGO_PREFIX + event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+            increment(route, COUNTER_MONGO_FAILURES);
+        }
+    }
+
+    public void recordTimer(String route, String name, long elapsedNanos) {
+        if (!enabled) {
+            return;
+        }
+        timers.computeIfAbsent(route, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> new Timer())
+                .recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+    }
+
+    public void increment(String route, String name) {
+        if (!enabled) {
+            return;
+        }
+        counters.computeIfAbsent(route, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Writes and resets everything recorded since the previous flush. Interval histograms are
+     * recycled, and routes with nothing recorded since the previous flush are skipped.
+     */
+    public synchronized void flush() {
+        lastFlushNanos.set(System.nanoTime());
+        long timestamp = System.currentTimeMillis();
+        for (Map.Entry<String, Map<String, Timer>> route : timers.entrySet()) {
+            JsonObject line = null;
+            JsonArray definitions = null;
+            for (Map.Entry<String, Timer> timer : route.getValue().entrySet()) {
+                Histogram histogram = timer.getValue().sample();
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                if (line == null) {
+                    line = newLine(route.getKey(), timestamp);
+                    definitions = definitions(line);
+                }
+                String name = timer.getKey();
+                addMetric(line, definitions, name + ".p50", histogram.getValueAtPercentile(50), UNIT_MILLISECONDS);
+                addMetric(line, definitions, name + ".p90", histogram.getValueAtPercentile(90), UNIT_MILLISECONDS);
+                addMetric(line, definitions, name + ".p99", histogram.getValueAtPercentile(99), UNIT_MILLISECONDS);
+                addMetric(line, definitions, name + ".max", histogram.getMaxValue(), UNIT_MILLISECONDS);
+            }
+            Map<String, LongAdder> routeCounters = counters.get(route.getKey());
+            if (routeCounters != null) {
+                for (Map.Entry<String, LongAdder> counter : routeCounters.entrySet()) {
+                    long count = counter.getValue().sumThenReset();
+                    if (count == 0) {
+                        continue;
+                    }
+                    if (line == null) {
+                        line = newLine(route.getKey(), timestamp);
+                        definitions = definitions(line);
+                    }
+                    definitions.add(definition(counter.getKey(), UNIT_COUNT));
+                    line.addProperty(counter.getKey(), count);
+                }
+            }
+            if (line != null) {
+                sink.write(line.toString());
+            }
+        }
+    }
+
+    /**
+     * Drops everything recorded since the previous flush without writing it.
+     */
+    public synchronized void discard() {
+        timers.values().forEach(routeTimers -> routeTimers.values().forEach(timer -> timer.recorder.reset()));
+        counters.values().forEach(routeCounters -> routeCounters.values().forEach(LongAdder::reset));
+    }
+
+    private void flushIfDue() {
+        long last = lastFlushNanos.get();
+        long now = System.nanoTime();
+        if (now - last >= flushIntervalNanos && lastFlushNanos.compareAndSet(last, now)) {
+            flush();
+        }
+    }
+
+    private JsonObject newLine(String route, long timestamp) {
+        JsonArray dimensionSet = new JsonArray();
+        dimensionSet.add(DIMENSION_SERVICE);
+        dimensionSet.add(DIMENSION_ROUTE);
+        JsonArray dimensions = new JsonArray();
+        dimensions.add(dimensionSet);
+        JsonObject directive = new JsonObject();
+        directive.addProperty("Namespace", namespace);
+        directive.add("Dimensions", dimensions);
+        directive.add("Metrics", new JsonArray());
+        JsonArray directives = new JsonArray();
+        directives.add(directive);
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("Timestamp", timestamp);
+        metadata.add("CloudWatchMetrics", directives);
+        JsonObject line = new JsonObject();
+        line.add("_aws", metadata);
+        line.addProperty(DIMENSION_SERVICE, service);
+        line.addProperty(DIMENSION_ROUTE, route);
+        return line;
+    }
+
+    private static JsonArray definitions(JsonObject line) {
+        return line.getAsJsonObject("_aws")
+                .getAsJsonArray("CloudWatchMetrics")
+                .get(0).getAsJsonObject()
+                .getAsJsonArray("Metrics");
+    }
+
+    private static void addMetric(JsonObject line, JsonArray definitions, String name, long micros, String unit) {
+        definitions.add(definition(name, unit));
+        line.addProperty(name, micros / MICROS_PER_MILLI);
+    }
+
+    private static JsonObject definition(String name, String unit) {
+        JsonObject definition = new JsonObject();
+        definition.addProperty("Name", name);
+        definition.addProperty("Unit", unit);
+        return definition;
+    }
+
+    private static String currentRoute() {
+        String route = Phases.currentRoute();
+        return route == null ? ROUTE_OUTSIDE_REQUEST : route;
+    }
+
+    static String routeName(String method, String route) {
+        return method + " " + route;
+    }
+
+    private static String envOrDefault(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,18 @@
+package org.aygo.core;
+
+public final class HttpStatus {
+    public static final int OK = 200;
+    public static final int CREATED = 201;
+    public static final int ACCEPTED = 202;
+    public static final int NOT_MODIFIED = 304;
+    public static final int BAD_REQUEST = 400;
+    public static final int NOT_FOUND = 404;
+    public static final int METHOD_NOT_ALLOWED = 405;
+    public static final int CONFLICT = 409;
+    public static final int UNPROCESSABLE_ENTITY = 422;
+    public static final int INTERNAL_ERROR = 500;
+    public static final int SERVICE_UNAVAILABLE = 503;
+
+    private HttpStatus() {
+    }
+}
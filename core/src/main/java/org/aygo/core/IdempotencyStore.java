@@ -0,0 +1,260 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes a write endpoint safe to retry through the {@code Idempotency-Key} header. The first request
+ * with a key reserves it with a single upsert on a unique index and stores the response once the
+ * route returns; later requests with the same key and body get that stored response back without
+ * running the route again. Keys expire through a TTL index on {@code createdAt}.
+ *
+ * <p>A reservation is only held until {@code pendingUntil}. If the request holding it never stores a
+ * response or releases the key (the container died or timed out mid-request), a retry after that
+ * instant takes the key over with a conditional update and runs the route itself. Writes by the
+ * previous holder are fenced off by matching on their own {@code pendingUntil}, which a takeover
+ * always moves forward. A previous holder may still be running, or may have written and failed to
+ * store its response, so a takeover can run the route a second time: routes behind the store must
+ * make that second run harmless themselves, for instance by deriving the id they insert from
+ * {@link #keyOf} so the unique index rejects it and the route answers with what is already there.
+ */
+public final class IdempotencyStore {
+    public static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String HEADER_IDEMPOTENT_REPLAY = "Idempotent-Replayed";
+    public static final String ENV_IDEMPOTENCY_TTL_SECONDS = "IDEMPOTENCY_TTL_SECONDS";
+    public static final String ENV_IDEMPOTENCY_PENDING_MILLIS = "IDEMPOTENCY_PENDING_MILLIS";
+
+    private static final String COLLECTION_SUFFIX = "_idempotency";
+    private static final long DEFAULT_TTL_SECONDS = 86_400;
+    private static final long DEFAULT_PENDING_MILLIS = 30_000;
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_REQUEST_HASH = "requestHash";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_PENDING_UNTIL = "pendingUntil";
+    private static final String FIELD_STATUS_CODE = "statusCode";
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_HEADERS = "headers";
+
+    private static final String MESSAGE_INVALID_KEY = "Invalid Idempotency-Key";
+    private static final String MESSAGE_IN_PROGRESS = "A request with this Idempotency-Key is still in progress";
+    private static final String MESSAGE_KEY_REUSED = "Idempotency-Key was already used with a different request";
+    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
+
+    private static final FindOneAndUpdateOptions RESERVE = new FindOneAndUpdateOptions()
+            .upsert(true)
+            .returnDocument(ReturnDocument.BEFORE);
+
+    private final MongoCollection<Document> keys;
+    private final long pendingMillis;
+
+    private IdempotencyStore(MongoCollection<Document> keys, long pendingMillis) {
+        this.keys = keys;
+        this.pendingMillis = pendingMillis;
+    }
+
+    /**
+     * Uses a {@code <collection>_idempotency} collection in {@code database} next to {@code target},
+     * creating its indexes on first use.
+     */
+    public static IdempotencyStore forCollection(MongoDatabase database, MongoCollection<Document> target) {
+        return forCollection(database, target, MongoSupport.envLong(ENV_IDEMPOTENCY_PENDING_MILLIS, DEFAULT_PENDING_MILLIS));
+    }
+
+    static IdempotencyStore forCollection(MongoDatabase database, MongoCollection<Document> target, long pendingMillis) {
+        MongoCollection<Document> keys = database.getCollection(target.getNamespace().getCollectionName() + COLLECTION_SUFFIX);
+        long ttlSeconds = MongoSupport.envLong(ENV_IDEMPOTENCY_TTL_SECONDS, DEFAULT_TTL_SECONDS);
+        MongoSupport.ensureIndexes(keys, List.of(
+                new IndexModel(Indexes.ascending(FIELD_KEY), new IndexOptions().unique(true)),
+                new IndexModel(Indexes.ascending(FIELD_CREATED_AT),
+                        new IndexOptions().expireAfter(ttlSeconds, TimeUnit.SECONDS))
+        ));
+        return new IdempotencyStore(keys, pendingMillis);
+    }
+
+    /**
+     * Runs {@code route} unless the request's key has been seen before. Requests without the header
+     * go straight to the route. Responses with a 5xx status, or a route that throws, release the
+     * key so the client can retry. A failure to store the response is answered with a 500 and the
+     * key is released as well: the route's write has happened, and it is the retry, running the
+     * route again, that finds it and answers with it.
+     */
+    public APIGatewayProxyResponseEvent execute(APIGatewayProxyRequestEvent input, Route route) {
+        String key = keyOf(input);
+        if (key == null) {
+            return route.handle(input);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_KEY);
+        }
+        String requestHash = hash(input.getBody());
+        Date now = new Date();
+        Date pendingUntil = new Date(now.getTime() + pendingMillis);
+        Document existing = reserve(key, requestHash, now, pendingUntil);
+        if (existing != null) {
+            if (!isAbandoned(existing, requestHash, now)) {
+                return replay(existing, requestHash);
+            }
+            if (!takeOver(key, requestHash, now, pendingUntil)) {
+                Document latest = keys.find(Filters.eq(FIELD_KEY, key)).first();
+                return latest == null
+                        ? Responses.error(HttpStatus.CONFLICT, MESSAGE_IN_PROGRESS)
+                        : replay(latest, requestHash);
+            }
+        }
+        Bson reservation = Filters.and(Filters.eq(FIELD_KEY, key), Filters.eq(FIELD_PENDING_UNTIL, pendingUntil));
+        APIGatewayProxyResponseEvent response;
+        try {
+            response = route.handle(input);
+        } catch (RuntimeException exception) {
+            release(key, reservation);
+            throw exception;
+        }
+        if (response.getStatusCode() != null && response.getStatusCode() >= HttpStatus.INTERNAL_ERROR) {
+            release(key, reservation);
+            return response;
+        }
+        try {
+            keys.updateOne(reservation, Updates.combine(
+                    Updates.set(FIELD_STATUS_CODE, response.getStatusCode()),
+                    Updates.set(FIELD_BODY, response.getBody()),
+                    Updates.set(FIELD_HEADERS, response.getHeaders() == null ? null : new Document(response.getHeaders()))
+            ));
+        } catch (MongoException exception) {
+            System.err.println("Could not store the response for Idempotency-Key " + key + ": " + exception.getMessage());
+            release(key, reservation);
+            return Responses.error(HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
+        }
+        return response;
+    }
+
+    /**
+     * The request's {@code Idempotency-Key}, or {@code null} when it has none. The store only runs a
+     * route with a valid key, so inside a route a non-null value is a usable one.
+     */
+    public static String keyOf(APIGatewayProxyRequestEvent input) {
+        return Requests.header(input, HEADER_IDEMPOTENCY_KEY);
+    }
+
+    private void release(String key, Bson reservation) {
+        try {
+            keys.deleteOne(Filters.and(reservation, Filters.eq(FIELD_STATUS_CODE, null)));
+        } catch (MongoException exception) {
+            System.err.println("Could not release Idempotency-Key " + key + ": " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Inserts a pending entry for {@code key} in one round trip and returns the entry that was
+     * already there, or {@code null} when this call reserved the key. Two concurrent upserts of a
+     * new key can both miss and race on the unique index; the loser retries and sees the winner.
+     */
+    private Document reserve(String key, String requestHash, Date now, Date pendingUntil) {
+        Document pending = new Document(FIELD_KEY, key)
+                .append(FIELD_REQUEST_HASH, requestHash)
+                .append(FIELD_CREATED_AT, now)
+                .append(FIELD_PENDING_UNTIL, pendingUntil);
+        try {
+            return keys.findOneAndUpdate(Filters.eq(FIELD_KEY, key), new Document("$setOnInsert", pending), RESERVE);
+        } catch (MongoCommandException | MongoWriteException exception) {
+            if (!isDuplicateKey(exception)) {
+                throw exception;
+            }
+            return keys.findOneAndUpdate(Filters.eq(FIELD_KEY, key), new Document("$setOnInsert", pending), RESERVE);
+        }
+    }
+
+    /**
+     * A reservation for the same request that never got a response and whose holder's time is up.
+     * Entries written before {@code pendingUntil} existed are judged by {@code createdAt}.
+     */
+    private boolean isAbandoned(Document existing, String requestHash, Date now) {
+        if (existing.get(FIELD_STATUS_CODE) != null || !requestHash.equals(existing.getString(FIELD_REQUEST_HASH))) {
+            return false;
+        }
+        Date pendingUntil = existing.getDate(FIELD_PENDING_UNTIL);
+        if (pendingUntil == null) {
+            Date createdAt = existing.getDate(FIELD_CREATED_AT);
+            pendingUntil = createdAt == null ? now : new Date(createdAt.getTime() + pendingMillis);
+        }
+        return pendingUntil.before(now);
+    }
+
+    /**
+     * Moves an abandoned reservation to this request. Only one of several concurrent retries can
+     * match the expired {@code pendingUntil}, so only one of them runs the route.
+     */
+    private boolean takeOver(String key, String requestHash, Date now, Date pendingUntil) {
+        return keys.updateOne(
+                Filters.and(
+                        Filters.eq(FIELD_KEY, key),
+                        Filters.eq(FIELD_REQUEST_HASH, requestHash),
+                        Filters.eq(FIELD_STATUS_CODE, null),
+                        Filters.or(Filters.lt(FIELD_PENDING_UNTIL, now), Filters.eq(FIELD_PENDING_UNTIL, null))
+                ),
+                Updates.set(FIELD_PENDING_UNTIL, pendingUntil)
+        ).getModifiedCount() == 1;
+    }
+
+    private static boolean isDuplicateKey(RuntimeException exception) {
+        if (exception instanceof MongoWriteException) {
+            return ((MongoWriteException) exception).getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
+        }
+        return ErrorCategory.fromErrorCode(((MongoCommandException) exception).getErrorCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    private APIGatewayProxyResponseEvent replay(Document existing, String requestHash) {
+        if (!requestHash.equals(existing.getString(FIELD_REQUEST_HASH))) {
+            return Responses.error(HttpStatus.UNPROCESSABLE_ENTITY, MESSAGE_KEY_REUSED);
+        }
+        Integer statusCode = existing.getInteger(FIELD_STATUS_CODE);
+        if (statusCode == null) {
+            return Responses.error(HttpStatus.CONFLICT, MESSAGE_IN_PROGRESS);
+        }
+        Map<String, String> headers = new HashMap<>();
+        Document storedHeaders = existing.get(FIELD_HEADERS, Document.class);
+        if (storedHeaders != null) {
+            storedHeaders.forEach((name, value) -> headers.put(name, String.valueOf(value)));
+        }
+        headers.put(HEADER_IDEMPOTENT_REPLAY, Boolean.TRUE.toString());
+        return Responses.build(statusCode, existing.getString(FIELD_BODY), headers);
+    }
+
+    static String hash(String body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest((body == null ? "" : body).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
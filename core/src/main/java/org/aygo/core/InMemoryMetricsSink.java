@@ -0,0 +1,24 @@
+package org.aygo.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps flushed metric lines in memory so local runs and tests can inspect them.
+ */
+public final class InMemoryMetricsSink implements MetricsSink {
+    private final List<String> lines = new ArrayList<>();
+
+    @Override
+    public synchronized void write(String line) {
+        lines.add(line);
+    }
+
+    public synchronized List<String> lines() {
+        return List.copyOf(lines);
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+    }
+}
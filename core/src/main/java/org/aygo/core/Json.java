@@ -0,0 +1,213 @@
+package org.aygo.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide {@link Gson} instance plus the streaming helpers handlers use for their own types.
+ * Gson is thread-safe and caches its type adapters, so sharing one instance avoids rebuilding them
+ * for every handler. Entity responses and request bodies go through hand-written
+ * {@link DocumentWriter}s and {@link RequestReader}s instead of reflection, which writes BSON
+ * fields straight to the output without an intermediate summary object. Lists are written from
+ * {@link RawBsonDocument}s by a {@link RawDocumentWriter}, skipping the {@code Document} as well.
+ *
+ * <p>The value readers accept the same coercions as Gson's default adapters (quoted numbers and
+ * booleans, numbers as strings), so existing clients keep working.
+ */
+public final class Json {
+    private static final Gson GSON = new Gson();
+
+    private Json() {
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    public static String write(Document document, DocumentWriter documentWriter) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter writer = GSON.newJsonWriter(buffer)) {
+            documentWriter.write(writer, document);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+
+    public static String writeArray(Iterable<Document> documents, DocumentWriter documentWriter) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter writer = GSON.newJsonWriter(buffer)) {
+            writer.beginArray();
+            for (Document document : documents) {
+                documentWriter.write(writer, document);
+            }
+            writer.endArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+
+    public static String writeRawArray(Iterable<RawBsonDocument> documents, RawDocumentWriter documentWriter) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter writer = GSON.newJsonWriter(buffer)) {
+            writer.beginArray();
+            for (RawBsonDocument document : documents) {
+                documentWriter.write(writer, document);
+            }
+            writer.endArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return the parsed object, or {@code null} when the body is missing, {@code null}, not an
+     * object or not well-formed JSON
+     */
+    public static <T> T read(String body, RequestReader<T> requestReader) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try (JsonReader reader = GSON.newJsonReader(new StringReader(body))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            T value = requestReader.read(reader);
+            return reader.peek() == JsonToken.END_DOCUMENT ? value : null;
+        } catch (IOException | IllegalStateException | NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the parsed elements, with {@code null} for JSON nulls, or {@code null} when the body is
+     * not an array of objects
+     */
+    public static <T> List<T> readArray(String body, RequestReader<T> requestReader) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try (JsonReader reader = GSON.newJsonReader(new StringReader(body))) {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                return null;
+            }
+            List<T> values = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    values.add(null);
+                } else {
+                    values.add(requestReader.read(reader));
+                }
+            }
+            reader.endArray();
+            return reader.peek() == JsonToken.END_DOCUMENT ? values : null;
+        } catch (IOException | IllegalStateException | NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies the next value, of any type, from {@code reader} to {@code writer} token by token.
+     * Numbers keep their original text.
+     */
+    public static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+            }
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+            }
+            case STRING -> writer.value(reader.nextString());
+            case NUMBER -> writer.jsonValue(reader.nextString());
+            case BOOLEAN -> writer.value(reader.nextBoolean());
+            case NULL -> {
+                reader.nextNull();
+                writer.nullValue();
+            }
+            default -> throw new IllegalStateException("Unexpected JSON token: " + reader.peek());
+        }
+    }
+
+    public static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    public static Boolean nextBoolean(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(reader.nextString());
+        }
+        return reader.nextBoolean();
+    }
+
+    /**
+     * Reads into a primitive field: a JSON null leaves {@code current} in place, as Gson does.
+     */
+    public static boolean nextBoolean(JsonReader reader, boolean current) throws IOException {
+        Boolean value = nextBoolean(reader);
+        return value == null ? current : value;
+    }
+
+    public static Double nextDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextDouble();
+    }
+
+    public static double nextDouble(JsonReader reader, double current) throws IOException {
+        Double value = nextDouble(reader);
+        return value == null ? current : value;
+    }
+
+    public static Integer nextInteger(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextInt();
+    }
+}
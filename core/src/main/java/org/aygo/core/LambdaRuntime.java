@@ -0,0 +1,163 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal custom-runtime bootstrap for the {@code provided} Lambda runtimes: polls the Runtime API
+ * for the next invocation, decodes it with {@link ProxyEvents}, calls the handler named by
+ * {@code _HANDLER} (optionally suffixed with {@code ::handleRequest}) and posts the response or the
+ * error back. It is the entry point of the native images, and also runs on a JVM, which makes the
+ * two directly comparable.
+ *
+ * <p>A failure talking to the Runtime API ends the process, as the managed runtime does; Lambda
+ * then starts a new one.
+ */
+public final class LambdaRuntime {
+    public static final String ENV_RUNTIME_API = "AWS_LAMBDA_RUNTIME_API";
+    public static final String ENV_HANDLER = "_HANDLER";
+
+    private static final String ENV_FUNCTION_NAME = "AWS_LAMBDA_FUNCTION_NAME";
+    private static final String API_PATH = "/2018-06-01/runtime";
+    private static final String PATH_NEXT = "/invocation/next";
+    private static final String PATH_INVOCATION = "/invocation/";
+    private static final String PATH_RESPONSE = "/response";
+    private static final String PATH_ERROR = "/error";
+    private static final String PATH_INIT_ERROR = "/init/error";
+    private static final String METHOD_SEPARATOR = "::";
+
+    private static final String HEADER_REQUEST_ID = "Lambda-Runtime-Aws-Request-Id";
+    private static final String HEADER_DEADLINE_MS = "Lambda-Runtime-Deadline-Ms";
+    private static final String HEADER_TRACE_ID = "Lambda-Runtime-Trace-Id";
+    private static final String HEADER_ERROR_TYPE = "Lambda-Runtime-Function-Error-Type";
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String PROPERTY_TRACE_ID = "com.amazonaws.xray.traceHeader";
+
+    private final String baseUrl;
+    private final RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler;
+    private final String functionName;
+
+    public LambdaRuntime(String runtimeApi,
+                         RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler,
+                         String functionName) {
+        this.baseUrl = "http://" + runtimeApi + API_PATH;
+        this.handler = handler;
+        this.functionName = functionName;
+    }
+
+    private static final class Invocation {
+        private final String requestId;
+        private final long deadlineEpochMillis;
+        private final String payload;
+
+        Invocation(String requestId, long deadlineEpochMillis, String payload) {
+            this.requestId = requestId;
+            this.deadlineEpochMillis = deadlineEpochMillis;
+            this.payload = payload;
+        }
+    }
+
+    public static void main(String[] args) {
+        String runtimeApi = MongoSupport.requireEnv(ENV_RUNTIME_API);
+        RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler;
+        try {
+            handler = loadHandler(MongoSupport.requireEnv(ENV_HANDLER));
+        } catch (RuntimeException | ReflectiveOperationException | LinkageError exception) {
+            post("http://" + runtimeApi + API_PATH + PATH_INIT_ERROR, errorBody(exception), exception);
+            System.exit(1);
+            return;
+        }
+        new LambdaRuntime(runtimeApi, handler, System.getenv(ENV_FUNCTION_NAME)).run();
+    }
+
+    @SuppressWarnings("unchecked")
+    static RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> loadHandler(String name)
+            throws ReflectiveOperationException {
+        int separator = name.indexOf(METHOD_SEPARATOR);
+        String className = separator < 0 ? name : name.substring(0, separator);
+        return (RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>)
+                Class.forName(className).getDeclaredConstructor().newInstance();
+    }
+
+    public void run() {
+        while (true) {
+            Invocation invocation = next();
+            String invocationUrl = baseUrl + PATH_INVOCATION + invocation.requestId;
+            try {
+                APIGatewayProxyRequestEvent event = ProxyEvents.readRequest(invocation.payload);
+                APIGatewayProxyResponseEvent response = handler.handleRequest(event,
+                        new LocalContext(functionName, invocation.requestId, invocation.deadlineEpochMillis));
+                post(invocationUrl + PATH_RESPONSE, ProxyEvents.writeResponse(response), null);
+            } catch (RuntimeException exception) {
+                post(invocationUrl + PATH_ERROR, errorBody(exception), exception);
+            }
+        }
+    }
+
+    private Invocation next() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(baseUrl + PATH_NEXT).toURL().openConnection();
+            connection.setReadTimeout(0);
+            String payload;
+            try (InputStream input = connection.getInputStream()) {
+                payload = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String traceId = connection.getHeaderField(HEADER_TRACE_ID);
+            if (traceId != null) {
+                System.setProperty(PROPERTY_TRACE_ID, traceId);
+            }
+            String deadline = connection.getHeaderField(HEADER_DEADLINE_MS);
+            return new Invocation(
+                    connection.getHeaderField(HEADER_REQUEST_ID),
+                    deadline == null ? Long.MAX_VALUE : Long.parseLong(deadline),
+                    payload);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void post(String url, String body, Throwable error) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
+            if (error != null) {
+                connection.setRequestProperty(HEADER_ERROR_TYPE, error.getClass().getName());
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(bytes);
+            }
+            connection.getInputStream().close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static String errorBody(Throwable error) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter writer = Json.gson().newJsonWriter(buffer)) {
+            writer.beginObject();
+            writer.name("errorMessage").value(error.getMessage());
+            writer.name("errorType").value(error.getClass().getName());
+            writer.endObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+}
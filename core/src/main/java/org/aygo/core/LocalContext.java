@@ -0,0 +1,93 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link Context} for invoking handlers outside the managed Lambda runtime. Only what the
+ * handlers use is backed by real values: the request id, the function name, the remaining time
+ * until the deadline and a logger that writes to stderr.
+ */
+public final class LocalContext implements Context {
+    private static final LambdaLogger STDERR_LOGGER = new LambdaLogger() {
+        @Override
+        public void log(String message) {
+            System.err.println(message);
+        }
+
+        @Override
+        public void log(byte[] message) {
+            System.err.println(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    private final String functionName;
+    private final String awsRequestId;
+    private final long deadlineEpochMillis;
+
+    public LocalContext(String functionName, String awsRequestId, long deadlineEpochMillis) {
+        this.functionName = functionName;
+        this.awsRequestId = awsRequestId;
+        this.deadlineEpochMillis = deadlineEpochMillis;
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return awsRequestId;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return null;
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return null;
+    }
+
+    @Override
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return null;
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return null;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        long remaining = deadlineEpochMillis - System.currentTimeMillis();
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, remaining));
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return STDERR_LOGGER;
+    }
+}
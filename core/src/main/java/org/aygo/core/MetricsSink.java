@@ -0,0 +1,12 @@
+package org.aygo.core;
+
+/**
+ * Destination for flushed metric lines. Lambda forwards stdout to CloudWatch Logs, which extracts
+ * metrics from lines in Embedded Metric Format, so {@link #STDOUT} is all production needs.
+ */
+@FunctionalInterface
+public interface MetricsSink {
+    MetricsSink STDOUT = System.out::println;
+
+    void write(String line);
+}
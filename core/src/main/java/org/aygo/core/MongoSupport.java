@@ -0,0 +1,205 @@
+package org.aygo.core;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Environment-driven Mongo bootstrap shared by every service. The client is created once per JVM
+ * and reused by all handlers loaded in it.
+ *
+ * <p>Pool sizing and timeouts default to values suited to a Lambda container serving one request
+ * at a time and can be overridden through the {@code MONGO_*} variables below; options set in the
+ * connection string take precedence over both.
+ *
+ * <p>{@link #client()} hands out a {@link ReconnectingClient} rather than the driver's client, so a
+ * checkpoint can close every socket and a restore can open a new pool behind the handlers' static
+ * fields; see {@link Checkpoints}.
+ */
+public final class MongoSupport {
+    public static final String ENV_MONGO_URI = "MONGO_URI";
+    public static final String ENV_MONGO_DB = "MONGO_DB";
+    public static final String ENV_MONGO_MIN_POOL_SIZE = "MONGO_MIN_POOL_SIZE";
+    public static final String ENV_MONGO_MAX_POOL_SIZE = "MONGO_MAX_POOL_SIZE";
+    public static final String ENV_MONGO_MAX_IDLE_MILLIS = "MONGO_MAX_IDLE_MILLIS";
+    public static final String ENV_MONGO_CONNECT_TIMEOUT_MILLIS = "MONGO_CONNECT_TIMEOUT_MILLIS";
+    public static final String ENV_MONGO_READ_TIMEOUT_MILLIS = "MONGO_READ_TIMEOUT_MILLIS";
+    public static final String ENV_MONGO_SERVER_SELECTION_TIMEOUT_MILLIS = "MONGO_SERVER_SELECTION_TIMEOUT_MILLIS";
+    public static final String ENV_MONGO_WARMUP = "MONGO_WARMUP";
+
+    private static final int DEFAULT_MIN_POOL_SIZE = 1;
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final long DEFAULT_MAX_IDLE_MILLIS = 300_000;
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final long DEFAULT_READ_TIMEOUT_MILLIS = 5_000;
+    private static final long DEFAULT_SERVER_SELECTION_TIMEOUT_MILLIS = 3_000;
+
+    private static final String ADMIN_DATABASE = "admin";
+    private static final Document PING_COMMAND = new Document("ping", 1);
+
+    private static MongoClient client;
+    private static volatile MongoClient delegate;
+
+    private MongoSupport() {
+    }
+
+    public static synchronized MongoClient client() {
+        if (client == null) {
+            delegate = open();
+            client = ReconnectingMongo.client(() -> delegate);
+            Checkpoints.install();
+        }
+        return client;
+    }
+
+    private static MongoClient open() {
+        MongoClient opened = MongoClients.create(settings(requireEnv(ENV_MONGO_URI)));
+        if (!"false".equalsIgnoreCase(System.getenv(ENV_MONGO_WARMUP))) {
+            warmUp(opened);
+        }
+        return opened;
+    }
+
+    /**
+     * Closes the pool and its monitor sockets ahead of a checkpoint. Calls made through
+     * {@link #client()} fail until {@link #reopen()}.
+     */
+    static synchronized void close() {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    static synchronized void reopen() {
+        if (client != null) {
+            delegate = open();
+        }
+    }
+
+    public static MongoClientSettings settings(String mongoUri) {
+        int minPoolSize = envInt(ENV_MONGO_MIN_POOL_SIZE, DEFAULT_MIN_POOL_SIZE);
+        int maxPoolSize = envInt(ENV_MONGO_MAX_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+        long maxIdleMillis = envLong(ENV_MONGO_MAX_IDLE_MILLIS, DEFAULT_MAX_IDLE_MILLIS);
+        long connectTimeoutMillis = envLong(ENV_MONGO_CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_TIMEOUT_MILLIS);
+        long readTimeoutMillis = envLong(ENV_MONGO_READ_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+        long serverSelectionTimeoutMillis = envLong(
+                ENV_MONGO_SERVER_SELECTION_TIMEOUT_MILLIS, DEFAULT_SERVER_SELECTION_TIMEOUT_MILLIS);
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        QueryPlanVerifier verifier = QueryPlanVerifier.instance();
+        if (verifier.isEnabled()) {
+            builder.addCommandListener(verifier);
+        }
+        EmfMetrics metrics = EmfMetrics.instance();
+        if (metrics.isEnabled()) {
+            builder.addCommandListener(metrics);
+        }
+        return builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(minPoolSize)
+                        .maxSize(maxPoolSize)
+                        .maxConnectionIdleTime(maxIdleMillis, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout((int) readTimeoutMillis, TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(serverSelectionTimeoutMillis, TimeUnit.MILLISECONDS))
+                .applyConnectionString(new ConnectionString(mongoUri))
+                .build();
+    }
+
+    /**
+     * Opens a connection during static init so the first request does not pay for DNS, the
+     * handshake and server discovery. A failure is left for the first request to surface.
+     */
+    public static boolean warmUp(MongoClient client) {
+        try {
+            client.getDatabase(ADMIN_DATABASE).runCommand(PING_COMMAND);
+            return true;
+        } catch (MongoException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the indexes a service relies on. {@code createIndexes} is a no-op for indexes that
+     * already exist, so this is safe to run on every cold start. A failure (for instance duplicate
+     * ids blocking a unique index) is reported on stderr instead of failing the container, since
+     * a missing index only costs latency.
+     */
+    public static void ensureIndexes(MongoCollection<Document> collection, List<IndexModel> indexes) {
+        try {
+            collection.createIndexes(indexes);
+        } catch (MongoException exception) {
+            System.err.println("Could not ensure indexes on " + collection.getNamespace() + ": "
+                    + exception.getMessage());
+        }
+    }
+
+    public static MongoDatabase database(MongoClient client) {
+        return client.getDatabase(requireEnv(ENV_MONGO_DB));
+    }
+
+    public static MongoCollection<Document> collection(MongoDatabase database, String collectionEnv) {
+        return database.getCollection(requireEnv(collectionEnv));
+    }
+
+    /**
+     * Resolves the collection from {@code collectionEnv}, falling back to {@code fallbackEnv}. Lets a
+     * handler read a service-specific variable when several handlers share one process and one
+     * environment, while a Lambda configured with only the fallback keeps working.
+     */
+    public static MongoCollection<Document> collection(MongoDatabase database, String collectionEnv, String fallbackEnv) {
+        String name = System.getenv(collectionEnv);
+        if (name == null || name.isBlank()) {
+            return collection(database, fallbackEnv);
+        }
+        return database.getCollection(name);
+    }
+
+    /**
+     * Resolves a collection a handler can run without: empty when {@code collectionEnv} is not set,
+     * so only the features that need the collection are turned off.
+     */
+    public static Optional<MongoCollection<Document>> optionalCollection(MongoDatabase database, String collectionEnv) {
+        String name = System.getenv(collectionEnv);
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(database.getCollection(name));
+    }
+
+    public static String requireEnv(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Missing environment variable: " + name);
+        }
+        return value;
+    }
+
+    public static int envInt(String name, int defaultValue) {
+        return (int) envLong(name, defaultValue);
+    }
+
+    public static long envLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalStateException("Invalid environment variable: " + name);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.Map;
+
+/**
+ * Serialised page of a list endpoint. {@code nextCursor} is the last id written when the page is
+ * full, otherwise {@code null}; it is returned in the {@value #HEADER_NEXT_CURSOR} header so the
+ * body stays a plain JSON array.
+ */
+public final class Page {
+    public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+
+    private final String body;
+    private final String nextCursor;
+
+    Page(String body, String nextCursor) {
+        this.body = body;
+        this.nextCursor = nextCursor;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public APIGatewayProxyResponseEvent toResponse() {
+        if (nextCursor == null) {
+            return Responses.ok(body);
+        }
+        return Responses.ok(body, Map.of(HEADER_NEXT_CURSOR, nextCursor));
+    }
+}
@@ -0,0 +1,101 @@
+package org.aygo.core;
+
+import com.google.gson.stream.JsonWriter;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keyset pagination on the application-level {@code id} field, driven by the {@code limit} and
+ * {@code after} query parameters. Documents are written to a {@link JsonWriter} as they come off
+ * the cursor, so memory is bounded by the page size rather than the collection size. The cursor
+ * decodes to {@link RawBsonDocument}, so each result stays in its wire buffer until a
+ * {@link RawDocumentWriter} copies the projected fields to the output.
+ */
+public final class PageRequest {
+    public static final String QUERY_PARAM_LIMIT = "limit";
+    public static final String QUERY_PARAM_AFTER = "after";
+
+    private static final String FIELD_ID = "id";
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final int limit;
+    private final String after;
+
+    private PageRequest(int limit, String after) {
+        this.limit = limit;
+        this.after = after;
+    }
+
+    public static Optional<PageRequest> parse(Map<String, String> parameters) {
+        String limitValue = parameters == null ? null : parameters.get(QUERY_PARAM_LIMIT);
+        String after = parameters == null ? null : parameters.get(QUERY_PARAM_AFTER);
+        if (after != null && after.isBlank()) {
+            return Optional.empty();
+        }
+        if (limitValue == null) {
+            return Optional.of(new PageRequest(DEFAULT_PAGE_SIZE, after));
+        }
+        try {
+            int limit = Integer.parseInt(limitValue.trim());
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                return Optional.empty();
+            }
+            return Optional.of(new PageRequest(limit, after));
+        } catch (NumberFormatException exception) {
+            return Optional.empty();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public Page fetch(MongoCollection<Document> collection, Bson filter, RawDocumentWriter documentWriter) {
+        Bson pageFilter = filter;
+        if (after != null) {
+            Bson afterFilter = Filters.gt(FIELD_ID, after);
+            pageFilter = filter.toBsonDocument().isEmpty() ? afterFilter : Filters.and(filter, afterFilter);
+        }
+        StringWriter buffer = new StringWriter();
+        RawBsonDocument last = null;
+        int count = 0;
+        try (JsonWriter writer = Json.gson().newJsonWriter(buffer);
+             MongoCursor<RawBsonDocument> cursor = collection.withDocumentClass(RawBsonDocument.class)
+                     .find(pageFilter)
+                     .projection(documentWriter.projection())
+                     .sort(Sorts.ascending(FIELD_ID))
+                     .limit(limit)
+                     .batchSize(limit)
+                     .iterator()) {
+            writer.beginArray();
+            while (cursor.hasNext()) {
+                last = cursor.next();
+                documentWriter.write(writer, last);
+                count++;
+            }
+            writer.endArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        String nextCursor = count == limit ? last.getString(FIELD_ID).getValue() : null;
+        return new Page(buffer.toString(), nextCursor);
+    }
+}
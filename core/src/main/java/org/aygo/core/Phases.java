@@ -0,0 +1,75 @@
+package org.aygo.core;
+
+/**
+ * Per-request phase timer. {@link Router} opens a request on the handling thread and routes call
+ * {@link #mark(String)} as they finish each phase; the time since the previous mark is recorded
+ * under that phase name. Whatever runs after the last mark, typically building the response, is
+ * recorded as {@link #SERIALIZE} when the request closes. Marks are no-ops when metrics are off.
+ */
+public final class Phases {
+    public static final String PARSE = "Parse";
+    public static final String VALIDATE = "Validate";
+    public static final String DB = "Db";
+    public static final String SERIALIZE = "Serialize";
+
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+    private Phases() {
+    }
+
+    private static final class State {
+        private final EmfMetrics metrics;
+        private final String route;
+        private long lastMarkNanos;
+        private boolean marked;
+
+        State(EmfMetrics metrics, String route, long startNanos) {
+            this.metrics = metrics;
+            this.route = route;
+            this.lastMarkNanos = startNanos;
+        }
+    }
+
+    public static void mark(String phase) {
+        State state = CURRENT.get();
+        if (state == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        state.metrics.recordTimer(state.route, phase, now - state.lastMarkNanos);
+        state.lastMarkNanos = now;
+        state.marked = true;
+    }
+
+    /**
+     * Counts an event, such as a cache hit, on the route of the request being handled.
+     */
+    public static void count(String counter) {
+        State state = CURRENT.get();
+        if (state != null) {
+            state.metrics.increment(state.route, counter);
+        }
+    }
+
+    static void begin(EmfMetrics metrics, String route, long startNanos) {
+        if (metrics.isEnabled()) {
+            CURRENT.set(new State(metrics, route, startNanos));
+        }
+    }
+
+    static void end() {
+        State state = CURRENT.get();
+        if (state == null) {
+            return;
+        }
+        CURRENT.remove();
+        if (state.marked) {
+            state.metrics.recordTimer(state.route, SERIALIZE, System.nanoTime() - state.lastMarkNanos);
+        }
+    }
+
+    static String currentRoute() {
+        State state = CURRENT.get();
+        return state == null ? null : state.route;
+    }
+}
@@ -0,0 +1,146 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming codec for the API Gateway proxy events exchanged with the Lambda Runtime API, used by
+ * {@link LambdaRuntime} in place of the managed runtime's reflective serialiser. Only the request
+ * fields the handlers read are decoded; the request context and any unknown field are skipped.
+ */
+public final class ProxyEvents {
+    private static final String FIELD_RESOURCE = "resource";
+    private static final String FIELD_PATH = "path";
+    private static final String FIELD_HTTP_METHOD = "httpMethod";
+    private static final String FIELD_HEADERS = "headers";
+    private static final String FIELD_MULTI_VALUE_HEADERS = "multiValueHeaders";
+    private static final String FIELD_QUERY_STRING_PARAMETERS = "queryStringParameters";
+    private static final String FIELD_MULTI_VALUE_QUERY_STRING_PARAMETERS = "multiValueQueryStringParameters";
+    private static final String FIELD_PATH_PARAMETERS = "pathParameters";
+    private static final String FIELD_STAGE_VARIABLES = "stageVariables";
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_IS_BASE64_ENCODED = "isBase64Encoded";
+    private static final String FIELD_STATUS_CODE = "statusCode";
+
+    private ProxyEvents() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when the payload is not a well-formed event object
+     */
+    public static APIGatewayProxyRequestEvent readRequest(String payload) {
+        try (JsonReader reader = Json.gson().newJsonReader(new StringReader(payload))) {
+            APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_RESOURCE -> event.setResource(Json.nextString(reader));
+                    case FIELD_PATH -> event.setPath(Json.nextString(reader));
+                    case FIELD_HTTP_METHOD -> event.setHttpMethod(Json.nextString(reader));
+                    case FIELD_HEADERS -> event.setHeaders(readMap(reader));
+                    case FIELD_MULTI_VALUE_HEADERS -> event.setMultiValueHeaders(readMultiMap(reader));
+                    case FIELD_QUERY_STRING_PARAMETERS -> event.setQueryStringParameters(readMap(reader));
+                    case FIELD_MULTI_VALUE_QUERY_STRING_PARAMETERS ->
+                            event.setMultiValueQueryStringParameters(readMultiMap(reader));
+                    case FIELD_PATH_PARAMETERS -> event.setPathParameters(readMap(reader));
+                    case FIELD_STAGE_VARIABLES -> event.setStageVariables(readMap(reader));
+                    case FIELD_BODY -> event.setBody(Json.nextString(reader));
+                    case FIELD_IS_BASE64_ENCODED -> event.setIsBase64Encoded(Json.nextBoolean(reader));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return event;
+        } catch (IOException | IllegalStateException | NumberFormatException exception) {
+            throw new IllegalArgumentException("Malformed proxy event", exception);
+        }
+    }
+
+    public static String writeResponse(APIGatewayProxyResponseEvent response) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter writer = Json.gson().newJsonWriter(buffer)) {
+            writer.beginObject();
+            writer.name(FIELD_STATUS_CODE).value(response.getStatusCode());
+            writeMap(writer, FIELD_HEADERS, response.getHeaders());
+            if (response.getMultiValueHeaders() != null) {
+                writer.name(FIELD_MULTI_VALUE_HEADERS).beginObject();
+                for (Map.Entry<String, List<String>> header : response.getMultiValueHeaders().entrySet()) {
+                    writer.name(header.getKey()).beginArray();
+                    for (String value : header.getValue()) {
+                        writer.value(value);
+                    }
+                    writer.endArray();
+                }
+                writer.endObject();
+            }
+            writer.name(FIELD_BODY).value(response.getBody());
+            writer.name(FIELD_IS_BASE64_ENCODED).value(Boolean.TRUE.equals(response.getIsBase64Encoded()));
+            writer.endObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+
+    private static Map<String, String> readMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Map<String, String> values = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            values.put(reader.nextName(), Json.nextString(reader));
+        }
+        reader.endObject();
+        return values;
+    }
+
+    private static Map<String, List<String>> readMultiMap(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        Map<String, List<String>> values = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            List<String> list = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                list.add(Json.nextString(reader));
+            }
+            reader.endArray();
+            values.put(name, list);
+        }
+        reader.endObject();
+        return values;
+    }
+
+    private static void writeMap(JsonWriter writer, String name, Map<String, String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        writer.name(name).beginObject();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue());
+        }
+        writer.endObject();
+    }
+}
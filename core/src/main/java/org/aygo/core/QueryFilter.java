@@ -0,0 +1,90 @@
+package org.aygo.core;
+
+import com.mongodb.client.model.Filters;
+
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Typed mapping from list query parameters to server-side equality predicates. Parameters that are
+ * not declared are ignored; a declared parameter with a value of the wrong type makes the whole
+ * filter invalid.
+ */
+public final class QueryFilter {
+    private final List<Parameter> parameters;
+
+    private QueryFilter(List<Parameter> parameters) {
+        this.parameters = parameters;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private enum Type {
+        STRING,
+        BOOLEAN
+    }
+
+    private static final class Parameter {
+        private final String name;
+        private final String field;
+        private final Type type;
+
+        Parameter(String name, String field, Type type) {
+            this.name = name;
+            this.field = field;
+            this.type = type;
+        }
+    }
+
+    public static final class Builder {
+        private final List<Parameter> parameters = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder string(String name, String field) {
+            parameters.add(new Parameter(name, field, Type.STRING));
+            return this;
+        }
+
+        public Builder bool(String name, String field) {
+            parameters.add(new Parameter(name, field, Type.BOOLEAN));
+            return this;
+        }
+
+        public QueryFilter build() {
+            return new QueryFilter(List.copyOf(parameters));
+        }
+    }
+
+    public Optional<Bson> toFilter(Map<String, String> queryParameters) {
+        List<Bson> predicates = new ArrayList<>();
+        for (Parameter parameter : parameters) {
+            String value = queryParameters == null ? null : queryParameters.get(parameter.name);
+            if (value == null) {
+                continue;
+            }
+            if (value.isBlank()) {
+                return Optional.empty();
+            }
+            if (parameter.type == Type.BOOLEAN) {
+                if (!"true".equals(value) && !"false".equals(value)) {
+                    return Optional.empty();
+                }
+                predicates.add(Filters.eq(parameter.field, Boolean.parseBoolean(value)));
+            } else {
+                predicates.add(Filters.eq(parameter.field, value));
+            }
+        }
+        if (predicates.isEmpty()) {
+            return Optional.of(Filters.empty());
+        }
+        return Optional.of(predicates.size() == 1 ? predicates.get(0) : Filters.and(predicates));
+    }
+}
@@ -0,0 +1,147 @@
+package org.aygo.core;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test mode that explains every query a service issues and rejects collection scans. Enabled with
+ * {@code MONGO_VERIFY_QUERY_PLANS=true}: commands are captured by this listener while a request
+ * runs and {@link Router} calls {@link #verify(MongoClient)} before returning, turning a
+ * {@code COLLSCAN} winning plan into a 500 with the offending command in the log. The sync driver
+ * reports commands on the thread that issued them, so each request only collects, and only
+ * explains, its own commands; commands issued outside a request are not verified.
+ *
+ * <p>An unfiltered, unsorted {@code find} is a deliberate full read and is not reported.
+ */
+public final class QueryPlanVerifier implements CommandListener {
+    public static final String ENV_MONGO_VERIFY_QUERY_PLANS = "MONGO_VERIFY_QUERY_PLANS";
+
+    private static final Set<String> VERIFIED_COMMANDS = Set.of(
+            "find", "findAndModify", "update", "delete", "aggregate", "count", "distinct");
+    private static final Set<String> STRIPPED_FIELDS = Set.of(
+            "lsid", "txnNumber", "autocommit", "startTransaction", "readConcern", "writeConcern");
+
+    private static final String FIELD_FILTER = "filter";
+    private static final String FIELD_SORT = "sort";
+    private static final String FIELD_EXPLAIN = "explain";
+    private static final String FIELD_VERBOSITY = "verbosity";
+    private static final String FIELD_WINNING_PLAN = "winningPlan";
+    private static final String FIELD_STAGE = "stage";
+    private static final String VERBOSITY_QUERY_PLANNER = "queryPlanner";
+    private static final String STAGE_COLLSCAN = "COLLSCAN";
+
+    private static final QueryPlanVerifier INSTANCE =
+            new QueryPlanVerifier(Boolean.parseBoolean(System.getenv(ENV_MONGO_VERIFY_QUERY_PLANS)));
+
+    private static final ThreadLocal<List<PendingCommand>> PENDING = new ThreadLocal<>();
+
+    private final boolean enabled;
+
+    private QueryPlanVerifier(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static QueryPlanVerifier instance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static final class PendingCommand {
+        private final String databaseName;
+        private final BsonDocument command;
+
+        PendingCommand(String databaseName, BsonDocument command) {
+            this.databaseName = databaseName;
+            this.command = command;
+        }
+    }
+
+    void begin() {
+        if (enabled) {
+            PENDING.set(new ArrayList<>());
+        }
+    }
+
+    void end() {
+        PENDING.remove();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        List<PendingCommand> pending = PENDING.get();
+        if (pending == null || !VERIFIED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        BsonDocument command = event.getCommand().clone();
+        if (isUnfilteredScan(event.getCommandName(), command)) {
+            return;
+        }
+        command.keySet().removeIf(key -> key.startsWith("$") || STRIPPED_FIELDS.contains(key));
+        pending.add(new PendingCommand(event.getDatabaseName(), command));
+    }
+
+    public void verify(MongoClient client) {
+        List<PendingCommand> pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        PENDING.remove();
+        for (PendingCommand next : pending) {
+            Document explain = client.getDatabase(next.databaseName).runCommand(new Document(FIELD_EXPLAIN, next.command)
+                    .append(FIELD_VERBOSITY, VERBOSITY_QUERY_PLANNER));
+            if (containsCollectionScan(explain.toBsonDocument(), false)) {
+                throw new IllegalStateException("Collection scan detected for " + next.command.toJson());
+            }
+        }
+    }
+
+    private static boolean isUnfilteredScan(String commandName, BsonDocument command) {
+        if (!"find".equals(commandName)) {
+            return false;
+        }
+        BsonValue filter = command.get(FIELD_FILTER);
+        BsonValue sort = command.get(FIELD_SORT);
+        boolean unfiltered = filter == null || (filter.isDocument() && filter.asDocument().isEmpty());
+        boolean unsorted = sort == null || (sort.isDocument() && sort.asDocument().isEmpty());
+        return unfiltered && unsorted;
+    }
+
+    private static boolean containsCollectionScan(BsonValue value, boolean inWinningPlan) {
+        if (value.isArray()) {
+            for (BsonValue element : value.asArray()) {
+                if (containsCollectionScan(element, inWinningPlan)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!value.isDocument()) {
+            return false;
+        }
+        BsonDocument document = value.asDocument();
+        if (inWinningPlan) {
+            BsonValue stage = document.get(FIELD_STAGE);
+            if (stage != null && stage.isString() && STAGE_COLLSCAN.equals(stage.asString().getValue())) {
+                return true;
+            }
+        }
+        for (String key : document.keySet()) {
+            if (containsCollectionScan(document.get(key), inWinningPlan || FIELD_WINNING_PLAN.equals(key))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,228 @@
+package org.aygo.core;
+
+import com.google.gson.stream.JsonWriter;
+import com.mongodb.client.model.Projections;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a fixed set of fields from a {@link RawBsonDocument} to a {@link JsonWriter} in one pass
+ * over the wire buffer. List endpoints use it instead of a {@link DocumentWriter}, so results are
+ * never decoded into an {@link org.bson.Document} and its backing map; each field value is read
+ * once and written once. The declared fields also give the projection, so only what is written
+ * is fetched.
+ *
+ * <p>Fields are written in declaration order whatever order they are stored in, and fields that
+ * are missing or of an unexpected BSON type are written as their default, as the
+ * {@code Document}-based writers do.
+ */
+public final class RawDocumentWriter {
+    private static final String FIELD_COORDINATES = "coordinates";
+
+    private final List<Field> fields;
+    private final Map<String, Integer> slots;
+    private final Bson projection;
+
+    private RawDocumentWriter(List<Field> fields) {
+        this.fields = fields;
+        this.slots = new HashMap<>();
+        List<String> names = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            slots.put(fields.get(i).source, i);
+            names.add(fields.get(i).source);
+        }
+        this.projection = Projections.fields(Projections.include(names), Projections.excludeId());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private enum Type {
+        STRING,
+        BOOLEAN,
+        DOUBLE,
+        POINT
+    }
+
+    private static final class Field {
+        private final String source;
+        private final Type type;
+        private final Object defaultValue;
+        private final String latName;
+        private final String lngName;
+
+        Field(String source, Type type, Object defaultValue, String latName, String lngName) {
+            this.source = source;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.latName = latName;
+            this.lngName = lngName;
+        }
+
+        Object read(BsonReader reader) {
+            BsonType bsonType = reader.getCurrentBsonType();
+            switch (type) {
+                case STRING:
+                    if (bsonType == BsonType.STRING) {
+                        return reader.readString();
+                    }
+                    break;
+                case BOOLEAN:
+                    if (bsonType == BsonType.BOOLEAN) {
+                        return reader.readBoolean();
+                    }
+                    break;
+                case DOUBLE:
+                    if (bsonType == BsonType.DOUBLE || bsonType == BsonType.INT32 || bsonType == BsonType.INT64) {
+                        return readNumber(reader, bsonType);
+                    }
+                    break;
+                case POINT:
+                    if (bsonType == BsonType.DOCUMENT) {
+                        return readCoordinates(reader);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            reader.skipValue();
+            return null;
+        }
+
+        void write(JsonWriter writer, Object value) throws IOException {
+            switch (type) {
+                case STRING -> writer.name(source).value((String) value);
+                case BOOLEAN -> writer.name(source).value(value == null ? (Boolean) defaultValue : (Boolean) value);
+                case DOUBLE -> writer.name(source).value((Number) value);
+                case POINT -> {
+                    double[] coordinates = (double[]) value;
+                    if (coordinates == null) {
+                        writer.name(latName).nullValue();
+                        writer.name(lngName).nullValue();
+                    } else {
+                        writer.name(latName).value(coordinates[1]);
+                        writer.name(lngName).value(coordinates[0]);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown field type: " + type);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final List<Field> fields = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder string(String name) {
+            fields.add(new Field(name, Type.STRING, null, null, null));
+            return this;
+        }
+
+        public Builder bool(String name, boolean defaultValue) {
+            fields.add(new Field(name, Type.BOOLEAN, defaultValue, null, null));
+            return this;
+        }
+
+        public Builder number(String name) {
+            fields.add(new Field(name, Type.DOUBLE, null, null, null));
+            return this;
+        }
+
+        /**
+         * A GeoJSON point stored in {@code name}, written as two numbers named {@code latName} and
+         * {@code lngName}, or two nulls when the point is missing or malformed.
+         */
+        public Builder point(String name, String latName, String lngName) {
+            fields.add(new Field(name, Type.POINT, null, latName, lngName));
+            return this;
+        }
+
+        public RawDocumentWriter build() {
+            return new RawDocumentWriter(List.copyOf(fields));
+        }
+    }
+
+    /**
+     * @return the projection that fetches exactly the declared fields, without {@code _id}
+     */
+    public Bson projection() {
+        return projection;
+    }
+
+    public void write(JsonWriter writer, RawBsonDocument document) throws IOException {
+        Object[] values = new Object[fields.size()];
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                Integer slot = slots.get(reader.readName());
+                if (slot == null) {
+                    reader.skipValue();
+                } else {
+                    values[slot] = fields.get(slot).read(reader);
+                }
+            }
+            reader.readEndDocument();
+        }
+        writer.beginObject();
+        for (int i = 0; i < values.length; i++) {
+            fields.get(i).write(writer, values[i]);
+        }
+        writer.endObject();
+    }
+
+    private static Double readNumber(BsonReader reader, BsonType bsonType) {
+        if (bsonType == BsonType.INT32) {
+            return (double) reader.readInt32();
+        }
+        if (bsonType == BsonType.INT64) {
+            return (double) reader.readInt64();
+        }
+        return reader.readDouble();
+    }
+
+    /**
+     * @return {@code [lng, lat]} from a GeoJSON point, or {@code null} without two numeric coordinates
+     */
+    private static double[] readCoordinates(BsonReader reader) {
+        double[] coordinates = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (!FIELD_COORDINATES.equals(reader.readName()) || reader.getCurrentBsonType() != BsonType.ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            double[] read = new double[2];
+            int count = 0;
+            boolean valid = true;
+            reader.readStartArray();
+            BsonType elementType;
+            while ((elementType = reader.readBsonType()) != BsonType.END_OF_DOCUMENT) {
+                boolean numeric = elementType == BsonType.DOUBLE
+                        || elementType == BsonType.INT32 || elementType == BsonType.INT64;
+                if (count < read.length && numeric) {
+                    read[count++] = readNumber(reader, elementType);
+                } else {
+                    valid &= count == read.length;
+                    reader.skipValue();
+                }
+            }
+            reader.readEndArray();
+            coordinates = valid && count == read.length ? read : null;
+        }
+        reader.readEndDocument();
+        return coordinates;
+    }
+}
@@ -0,0 +1,122 @@
+package org.aygo.core;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.ListDatabasesIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.connection.ClusterDescription;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The {@link MongoClient} handed out by {@link MongoSupport}: every call goes to whichever client
+ * {@link MongoSupport} currently holds, and {@link #getDatabase} returns a
+ * {@link ReconnectingDatabase} bound to the same source.
+ */
+final class ReconnectingClient extends ReconnectingMongo<MongoClient> implements MongoClient {
+    ReconnectingClient(Supplier<MongoClient> current) {
+        super(current, client -> client);
+    }
+
+    @Override
+    public MongoDatabase getDatabase(String databaseName) {
+        return new ReconnectingDatabase(current, client -> client.getDatabase(databaseName));
+    }
+
+    @Override
+    public ClientSession startSession() {
+        return target().startSession();
+    }
+
+    @Override
+    public ClientSession startSession(ClientSessionOptions options) {
+        return target().startSession(options);
+    }
+
+    @Override
+    public void close() {
+        target().close();
+    }
+
+    @Override
+    public MongoIterable<String> listDatabaseNames() {
+        return target().listDatabaseNames();
+    }
+
+    @Override
+    public MongoIterable<String> listDatabaseNames(ClientSession clientSession) {
+        return target().listDatabaseNames(clientSession);
+    }
+
+    @Override
+    public ListDatabasesIterable<Document> listDatabases() {
+        return target().listDatabases();
+    }
+
+    @Override
+    public ListDatabasesIterable<Document> listDatabases(ClientSession clientSession) {
+        return target().listDatabases(clientSession);
+    }
+
+    @Override
+    public <TResult> ListDatabasesIterable<TResult> listDatabases(Class<TResult> resultClass) {
+        return target().listDatabases(resultClass);
+    }
+
+    @Override
+    public <TResult> ListDatabasesIterable<TResult> listDatabases(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().listDatabases(clientSession, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch() {
+        return target().watch();
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(Class<TResult> resultClass) {
+        return target().watch(resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(List<? extends Bson> pipeline) {
+        return target().watch(pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(pipeline, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(ClientSession clientSession) {
+        return target().watch(clientSession);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().watch(clientSession, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(ClientSession clientSession, List<? extends Bson> pipeline) {
+        return target().watch(clientSession, pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(clientSession, pipeline, resultClass);
+    }
+
+    @Override
+    public ClusterDescription getClusterDescription() {
+        return target().getClusterDescription();
+    }
+}
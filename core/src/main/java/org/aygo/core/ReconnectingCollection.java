@@ -0,0 +1,773 @@
+package org.aygo.core;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.DistinctIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.ListSearchIndexesIterable;
+import com.mongodb.client.MapReduceIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.CreateIndexOptions;
+import com.mongodb.client.model.DeleteOptions;
+import com.mongodb.client.model.DropCollectionOptions;
+import com.mongodb.client.model.DropIndexOptions;
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneOptions;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.SearchIndexModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MongoCollection} that re-resolves against the current client; {@code with*} copies do
+ * the same.
+ */
+final class ReconnectingCollection<TDocument> extends ReconnectingMongo<MongoCollection<TDocument>>
+        implements MongoCollection<TDocument> {
+    ReconnectingCollection(Supplier<MongoClient> current, Function<MongoClient, MongoCollection<TDocument>> resolver) {
+        super(current, resolver);
+    }
+
+    @Override
+    public MongoNamespace getNamespace() {
+        return target().getNamespace();
+    }
+
+    @Override
+    public Class<TDocument> getDocumentClass() {
+        return target().getDocumentClass();
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return target().getCodecRegistry();
+    }
+
+    @Override
+    public ReadPreference getReadPreference() {
+        return target().getReadPreference();
+    }
+
+    @Override
+    public WriteConcern getWriteConcern() {
+        return target().getWriteConcern();
+    }
+
+    @Override
+    public ReadConcern getReadConcern() {
+        return target().getReadConcern();
+    }
+
+    @Override
+    public <NewTDocument> MongoCollection<NewTDocument> withDocumentClass(Class<NewTDocument> documentClass) {
+        return new ReconnectingCollection<>(current, client -> target(client).withDocumentClass(documentClass));
+    }
+
+    @Override
+    public MongoCollection<TDocument> withCodecRegistry(CodecRegistry codecRegistry) {
+        return new ReconnectingCollection<>(current, client -> target(client).withCodecRegistry(codecRegistry));
+    }
+
+    @Override
+    public MongoCollection<TDocument> withReadPreference(ReadPreference readPreference) {
+        return new ReconnectingCollection<>(current, client -> target(client).withReadPreference(readPreference));
+    }
+
+    @Override
+    public MongoCollection<TDocument> withWriteConcern(WriteConcern writeConcern) {
+        return new ReconnectingCollection<>(current, client -> target(client).withWriteConcern(writeConcern));
+    }
+
+    @Override
+    public MongoCollection<TDocument> withReadConcern(ReadConcern readConcern) {
+        return new ReconnectingCollection<>(current, client -> target(client).withReadConcern(readConcern));
+    }
+
+    @Override
+    public long countDocuments() {
+        return target().countDocuments();
+    }
+
+    @Override
+    public long countDocuments(Bson filter) {
+        return target().countDocuments(filter);
+    }
+
+    @Override
+    public long countDocuments(Bson filter, CountOptions options) {
+        return target().countDocuments(filter, options);
+    }
+
+    @Override
+    public long countDocuments(ClientSession clientSession) {
+        return target().countDocuments(clientSession);
+    }
+
+    @Override
+    public long countDocuments(ClientSession clientSession, Bson filter) {
+        return target().countDocuments(clientSession, filter);
+    }
+
+    @Override
+    public long countDocuments(ClientSession clientSession, Bson filter, CountOptions options) {
+        return target().countDocuments(clientSession, filter, options);
+    }
+
+    @Override
+    public long estimatedDocumentCount() {
+        return target().estimatedDocumentCount();
+    }
+
+    @Override
+    public long estimatedDocumentCount(EstimatedDocumentCountOptions options) {
+        return target().estimatedDocumentCount(options);
+    }
+
+    @Override
+    public <TResult> DistinctIterable<TResult> distinct(String fieldName, Class<TResult> resultClass) {
+        return target().distinct(fieldName, resultClass);
+    }
+
+    @Override
+    public <TResult> DistinctIterable<TResult> distinct(String fieldName, Bson filter, Class<TResult> resultClass) {
+        return target().distinct(fieldName, filter, resultClass);
+    }
+
+    @Override
+    public <TResult> DistinctIterable<TResult> distinct(ClientSession clientSession, String fieldName, Class<TResult> resultClass) {
+        return target().distinct(clientSession, fieldName, resultClass);
+    }
+
+    @Override
+    public <TResult> DistinctIterable<TResult> distinct(ClientSession clientSession, String fieldName, Bson filter, Class<TResult> resultClass) {
+        return target().distinct(clientSession, fieldName, filter, resultClass);
+    }
+
+    @Override
+    public FindIterable<TDocument> find() {
+        return target().find();
+    }
+
+    @Override
+    public <TResult> FindIterable<TResult> find(Class<TResult> resultClass) {
+        return target().find(resultClass);
+    }
+
+    @Override
+    public FindIterable<TDocument> find(Bson filter) {
+        return target().find(filter);
+    }
+
+    @Override
+    public <TResult> FindIterable<TResult> find(Bson filter, Class<TResult> resultClass) {
+        return target().find(filter, resultClass);
+    }
+
+    @Override
+    public FindIterable<TDocument> find(ClientSession clientSession) {
+        return target().find(clientSession);
+    }
+
+    @Override
+    public <TResult> FindIterable<TResult> find(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().find(clientSession, resultClass);
+    }
+
+    @Override
+    public FindIterable<TDocument> find(ClientSession clientSession, Bson filter) {
+        return target().find(clientSession, filter);
+    }
+
+    @Override
+    public <TResult> FindIterable<TResult> find(ClientSession clientSession, Bson filter, Class<TResult> resultClass) {
+        return target().find(clientSession, filter, resultClass);
+    }
+
+    @Override
+    public AggregateIterable<TDocument> aggregate(List<? extends Bson> pipeline) {
+        return target().aggregate(pipeline);
+    }
+
+    @Override
+    public <TResult> AggregateIterable<TResult> aggregate(List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().aggregate(pipeline, resultClass);
+    }
+
+    @Override
+    public AggregateIterable<TDocument> aggregate(ClientSession clientSession, List<? extends Bson> pipeline) {
+        return target().aggregate(clientSession, pipeline);
+    }
+
+    @Override
+    public <TResult> AggregateIterable<TResult> aggregate(ClientSession clientSession, List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().aggregate(clientSession, pipeline, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<TDocument> watch() {
+        return target().watch();
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(Class<TResult> resultClass) {
+        return target().watch(resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<TDocument> watch(List<? extends Bson> pipeline) {
+        return target().watch(pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(pipeline, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<TDocument> watch(ClientSession clientSession) {
+        return target().watch(clientSession);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().watch(clientSession, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<TDocument> watch(ClientSession clientSession, List<? extends Bson> pipeline) {
+        return target().watch(clientSession, pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(clientSession, pipeline, resultClass);
+    }
+
+    @Override
+    @Deprecated
+    public MapReduceIterable<TDocument> mapReduce(String mapFunction, String reduceFunction) {
+        return target().mapReduce(mapFunction, reduceFunction);
+    }
+
+    @Override
+    @Deprecated
+    public <TResult> MapReduceIterable<TResult> mapReduce(String mapFunction, String reduceFunction, Class<TResult> resultClass) {
+        return target().mapReduce(mapFunction, reduceFunction, resultClass);
+    }
+
+    @Override
+    @Deprecated
+    public MapReduceIterable<TDocument> mapReduce(ClientSession clientSession, String mapFunction, String reduceFunction) {
+        return target().mapReduce(clientSession, mapFunction, reduceFunction);
+    }
+
+    @Override
+    @Deprecated
+    public <TResult> MapReduceIterable<TResult> mapReduce(ClientSession clientSession, String mapFunction, String reduceFunction, Class<TResult> resultClass) {
+        return target().mapReduce(clientSession, mapFunction, reduceFunction, resultClass);
+    }
+
+    @Override
+    public BulkWriteResult bulkWrite(List<? extends WriteModel<? extends TDocument>> requests) {
+        return target().bulkWrite(requests);
+    }
+
+    @Override
+    public BulkWriteResult bulkWrite(List<? extends WriteModel<? extends TDocument>> requests, BulkWriteOptions options) {
+        return target().bulkWrite(requests, options);
+    }
+
+    @Override
+    public BulkWriteResult bulkWrite(ClientSession clientSession, List<? extends WriteModel<? extends TDocument>> requests) {
+        return target().bulkWrite(clientSession, requests);
+    }
+
+    @Override
+    public BulkWriteResult bulkWrite(ClientSession clientSession, List<? extends WriteModel<? extends TDocument>> requests, BulkWriteOptions options) {
+        return target().bulkWrite(clientSession, requests, options);
+    }
+
+    @Override
+    public InsertOneResult insertOne(TDocument document) {
+        return target().insertOne(document);
+    }
+
+    @Override
+    public InsertOneResult insertOne(TDocument document, InsertOneOptions options) {
+        return target().insertOne(document, options);
+    }
+
+    @Override
+    public InsertOneResult insertOne(ClientSession clientSession, TDocument document) {
+        return target().insertOne(clientSession, document);
+    }
+
+    @Override
+    public InsertOneResult insertOne(ClientSession clientSession, TDocument document, InsertOneOptions options) {
+        return target().insertOne(clientSession, document, options);
+    }
+
+    @Override
+    public InsertManyResult insertMany(List<? extends TDocument> documents) {
+        return target().insertMany(documents);
+    }
+
+    @Override
+    public InsertManyResult insertMany(List<? extends TDocument> documents, InsertManyOptions options) {
+        return target().insertMany(documents, options);
+    }
+
+    @Override
+    public InsertManyResult insertMany(ClientSession clientSession, List<? extends TDocument> documents) {
+        return target().insertMany(clientSession, documents);
+    }
+
+    @Override
+    public InsertManyResult insertMany(ClientSession clientSession, List<? extends TDocument> documents, InsertManyOptions options) {
+        return target().insertMany(clientSession, documents, options);
+    }
+
+    @Override
+    public DeleteResult deleteOne(Bson filter) {
+        return target().deleteOne(filter);
+    }
+
+    @Override
+    public DeleteResult deleteOne(Bson filter, DeleteOptions options) {
+        return target().deleteOne(filter, options);
+    }
+
+    @Override
+    public DeleteResult deleteOne(ClientSession clientSession, Bson filter) {
+        return target().deleteOne(clientSession, filter);
+    }
+
+    @Override
+    public DeleteResult deleteOne(ClientSession clientSession, Bson filter, DeleteOptions options) {
+        return target().deleteOne(clientSession, filter, options);
+    }
+
+    @Override
+    public DeleteResult deleteMany(Bson filter) {
+        return target().deleteMany(filter);
+    }
+
+    @Override
+    public DeleteResult deleteMany(Bson filter, DeleteOptions options) {
+        return target().deleteMany(filter, options);
+    }
+
+    @Override
+    public DeleteResult deleteMany(ClientSession clientSession, Bson filter) {
+        return target().deleteMany(clientSession, filter);
+    }
+
+    @Override
+    public DeleteResult deleteMany(ClientSession clientSession, Bson filter, DeleteOptions options) {
+        return target().deleteMany(clientSession, filter, options);
+    }
+
+    @Override
+    public UpdateResult replaceOne(Bson filter, TDocument replacement) {
+        return target().replaceOne(filter, replacement);
+    }
+
+    @Override
+    public UpdateResult replaceOne(Bson filter, TDocument replacement, ReplaceOptions options) {
+        return target().replaceOne(filter, replacement, options);
+    }
+
+    @Override
+    public UpdateResult replaceOne(ClientSession clientSession, Bson filter, TDocument replacement) {
+        return target().replaceOne(clientSession, filter, replacement);
+    }
+
+    @Override
+    public UpdateResult replaceOne(ClientSession clientSession, Bson filter, TDocument replacement, ReplaceOptions options) {
+        return target().replaceOne(clientSession, filter, replacement, options);
+    }
+
+    @Override
+    public UpdateResult updateOne(Bson filter, Bson update) {
+        return target().updateOne(filter, update);
+    }
+
+    @Override
+    public UpdateResult updateOne(Bson filter, Bson update, UpdateOptions options) {
+        return target().updateOne(filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateOne(ClientSession clientSession, Bson filter, Bson update) {
+        return target().updateOne(clientSession, filter, update);
+    }
+
+    @Override
+    public UpdateResult updateOne(ClientSession clientSession, Bson filter, Bson update, UpdateOptions options) {
+        return target().updateOne(clientSession, filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateOne(Bson filter, List<? extends Bson> update) {
+        return target().updateOne(filter, update);
+    }
+
+    @Override
+    public UpdateResult updateOne(Bson filter, List<? extends Bson> update, UpdateOptions options) {
+        return target().updateOne(filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateOne(ClientSession clientSession, Bson filter, List<? extends Bson> update) {
+        return target().updateOne(clientSession, filter, update);
+    }
+
+    @Override
+    public UpdateResult updateOne(ClientSession clientSession, Bson filter, List<? extends Bson> update, UpdateOptions options) {
+        return target().updateOne(clientSession, filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateMany(Bson filter, Bson update) {
+        return target().updateMany(filter, update);
+    }
+
+    @Override
+    public UpdateResult updateMany(Bson filter, Bson update, UpdateOptions options) {
+        return target().updateMany(filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateMany(ClientSession clientSession, Bson filter, Bson update) {
+        return target().updateMany(clientSession, filter, update);
+    }
+
+    @Override
+    public UpdateResult updateMany(ClientSession clientSession, Bson filter, Bson update, UpdateOptions options) {
+        return target().updateMany(clientSession, filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateMany(Bson filter, List<? extends Bson> update) {
+        return target().updateMany(filter, update);
+    }
+
+    @Override
+    public UpdateResult updateMany(Bson filter, List<? extends Bson> update, UpdateOptions options) {
+        return target().updateMany(filter, update, options);
+    }
+
+    @Override
+    public UpdateResult updateMany(ClientSession clientSession, Bson filter, List<? extends Bson> update) {
+        return target().updateMany(clientSession, filter, update);
+    }
+
+    @Override
+    public UpdateResult updateMany(ClientSession clientSession, Bson filter, List<? extends Bson> update, UpdateOptions options) {
+        return target().updateMany(clientSession, filter, update, options);
+    }
+
+    @Override
+    public TDocument findOneAndDelete(Bson filter) {
+        return target().findOneAndDelete(filter);
+    }
+
+    @Override
+    public TDocument findOneAndDelete(Bson filter, FindOneAndDeleteOptions options) {
+        return target().findOneAndDelete(filter, options);
+    }
+
+    @Override
+    public TDocument findOneAndDelete(ClientSession clientSession, Bson filter) {
+        return target().findOneAndDelete(clientSession, filter);
+    }
+
+    @Override
+    public TDocument findOneAndDelete(ClientSession clientSession, Bson filter, FindOneAndDeleteOptions options) {
+        return target().findOneAndDelete(clientSession, filter, options);
+    }
+
+    @Override
+    public TDocument findOneAndReplace(Bson filter, TDocument replacement) {
+        return target().findOneAndReplace(filter, replacement);
+    }
+
+    @Override
+    public TDocument findOneAndReplace(Bson filter, TDocument replacement, FindOneAndReplaceOptions options) {
+        return target().findOneAndReplace(filter, replacement, options);
+    }
+
+    @Override
+    public TDocument findOneAndReplace(ClientSession clientSession, Bson filter, TDocument replacement) {
+        return target().findOneAndReplace(clientSession, filter, replacement);
+    }
+
+    @Override
+    public TDocument findOneAndReplace(ClientSession clientSession, Bson filter, TDocument replacement, FindOneAndReplaceOptions options) {
+        return target().findOneAndReplace(clientSession, filter, replacement, options);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(Bson filter, Bson update) {
+        return target().findOneAndUpdate(filter, update);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(Bson filter, Bson update, FindOneAndUpdateOptions options) {
+        return target().findOneAndUpdate(filter, update, options);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(ClientSession clientSession, Bson filter, Bson update) {
+        return target().findOneAndUpdate(clientSession, filter, update);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(ClientSession clientSession, Bson filter, Bson update, FindOneAndUpdateOptions options) {
+        return target().findOneAndUpdate(clientSession, filter, update, options);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(Bson filter, List<? extends Bson> update) {
+        return target().findOneAndUpdate(filter, update);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(Bson filter, List<? extends Bson> update, FindOneAndUpdateOptions options) {
+        return target().findOneAndUpdate(filter, update, options);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(ClientSession clientSession, Bson filter, List<? extends Bson> update) {
+        return target().findOneAndUpdate(clientSession, filter, update);
+    }
+
+    @Override
+    public TDocument findOneAndUpdate(ClientSession clientSession, Bson filter, List<? extends Bson> update, FindOneAndUpdateOptions options) {
+        return target().findOneAndUpdate(clientSession, filter, update, options);
+    }
+
+    @Override
+    public void drop() {
+        target().drop();
+    }
+
+    @Override
+    public void drop(ClientSession clientSession) {
+        target().drop(clientSession);
+    }
+
+    @Override
+    public void drop(DropCollectionOptions options) {
+        target().drop(options);
+    }
+
+    @Override
+    public void drop(ClientSession clientSession, DropCollectionOptions options) {
+        target().drop(clientSession, options);
+    }
+
+    @Override
+    public String createSearchIndex(String indexName, Bson definition) {
+        return target().createSearchIndex(indexName, definition);
+    }
+
+    @Override
+    public String createSearchIndex(Bson definition) {
+        return target().createSearchIndex(definition);
+    }
+
+    @Override
+    public List<String> createSearchIndexes(List<SearchIndexModel> searchIndexModels) {
+        return target().createSearchIndexes(searchIndexModels);
+    }
+
+    @Override
+    public void updateSearchIndex(String indexName, Bson definition) {
+        target().updateSearchIndex(indexName, definition);
+    }
+
+    @Override
+    public void dropSearchIndex(String indexName) {
+        target().dropSearchIndex(indexName);
+    }
+
+    @Override
+    public ListSearchIndexesIterable<Document> listSearchIndexes() {
+        return target().listSearchIndexes();
+    }
+
+    @Override
+    public <TResult> ListSearchIndexesIterable<TResult> listSearchIndexes(Class<TResult> resultClass) {
+        return target().listSearchIndexes(resultClass);
+    }
+
+    @Override
+    public String createIndex(Bson keys) {
+        return target().createIndex(keys);
+    }
+
+    @Override
+    public String createIndex(Bson keys, IndexOptions options) {
+        return target().createIndex(keys, options);
+    }
+
+    @Override
+    public String createIndex(ClientSession clientSession, Bson keys) {
+        return target().createIndex(clientSession, keys);
+    }
+
+    @Override
+    public String createIndex(ClientSession clientSession, Bson keys, IndexOptions options) {
+        return target().createIndex(clientSession, keys, options);
+    }
+
+    @Override
+    public List<String> createIndexes(List<IndexModel> indexes) {
+        return target().createIndexes(indexes);
+    }
+
+    @Override
+    public List<String> createIndexes(List<IndexModel> indexes, CreateIndexOptions options) {
+        return target().createIndexes(indexes, options);
+    }
+
+    @Override
+    public List<String> createIndexes(ClientSession clientSession, List<IndexModel> indexes) {
+        return target().createIndexes(clientSession, indexes);
+    }
+
+    @Override
+    public List<String> createIndexes(ClientSession clientSession, List<IndexModel> indexes, CreateIndexOptions options) {
+        return target().createIndexes(clientSession, indexes, options);
+    }
+
+    @Override
+    public ListIndexesIterable<Document> listIndexes() {
+        return target().listIndexes();
+    }
+
+    @Override
+    public <TResult> ListIndexesIterable<TResult> listIndexes(Class<TResult> resultClass) {
+        return target().listIndexes(resultClass);
+    }
+
+    @Override
+    public ListIndexesIterable<Document> listIndexes(ClientSession clientSession) {
+        return target().listIndexes(clientSession);
+    }
+
+    @Override
+    public <TResult> ListIndexesIterable<TResult> listIndexes(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().listIndexes(clientSession, resultClass);
+    }
+
+    @Override
+    public void dropIndex(String indexName) {
+        target().dropIndex(indexName);
+    }
+
+    @Override
+    public void dropIndex(String indexName, DropIndexOptions options) {
+        target().dropIndex(indexName, options);
+    }
+
+    @Override
+    public void dropIndex(Bson keys) {
+        target().dropIndex(keys);
+    }
+
+    @Override
+    public void dropIndex(Bson keys, DropIndexOptions options) {
+        target().dropIndex(keys, options);
+    }
+
+    @Override
+    public void dropIndex(ClientSession clientSession, String indexName) {
+        target().dropIndex(clientSession, indexName);
+    }
+
+    @Override
+    public void dropIndex(ClientSession clientSession, Bson keys) {
+        target().dropIndex(clientSession, keys);
+    }
+
+    @Override
+    public void dropIndex(ClientSession clientSession, String indexName, DropIndexOptions options) {
+        target().dropIndex(clientSession, indexName, options);
+    }
+
+    @Override
+    public void dropIndex(ClientSession clientSession, Bson keys, DropIndexOptions options) {
+        target().dropIndex(clientSession, keys, options);
+    }
+
+    @Override
+    public void dropIndexes() {
+        target().dropIndexes();
+    }
+
+    @Override
+    public void dropIndexes(ClientSession clientSession) {
+        target().dropIndexes(clientSession);
+    }
+
+    @Override
+    public void dropIndexes(DropIndexOptions options) {
+        target().dropIndexes(options);
+    }
+
+    @Override
+    public void dropIndexes(ClientSession clientSession, DropIndexOptions options) {
+        target().dropIndexes(clientSession, options);
+    }
+
+    @Override
+    public void renameCollection(MongoNamespace newCollectionNamespace) {
+        target().renameCollection(newCollectionNamespace);
+    }
+
+    @Override
+    public void renameCollection(MongoNamespace newCollectionNamespace, RenameCollectionOptions options) {
+        target().renameCollection(newCollectionNamespace, options);
+    }
+
+    @Override
+    public void renameCollection(ClientSession clientSession, MongoNamespace newCollectionNamespace) {
+        target().renameCollection(clientSession, newCollectionNamespace);
+    }
+
+    @Override
+    public void renameCollection(ClientSession clientSession, MongoNamespace newCollectionNamespace, RenameCollectionOptions options) {
+        target().renameCollection(clientSession, newCollectionNamespace, options);
+    }
+}
@@ -0,0 +1,268 @@
+package org.aygo.core;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.CreateViewOptions;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MongoDatabase} that re-resolves against the current client, returning
+ * {@link ReconnectingCollection}s and {@code with*} copies that do the same.
+ */
+final class ReconnectingDatabase extends ReconnectingMongo<MongoDatabase> implements MongoDatabase {
+    ReconnectingDatabase(Supplier<MongoClient> current, Function<MongoClient, MongoDatabase> resolver) {
+        super(current, resolver);
+    }
+
+    @Override
+    public String getName() {
+        return target().getName();
+    }
+
+    @Override
+    public CodecRegistry getCodecRegistry() {
+        return target().getCodecRegistry();
+    }
+
+    @Override
+    public ReadPreference getReadPreference() {
+        return target().getReadPreference();
+    }
+
+    @Override
+    public WriteConcern getWriteConcern() {
+        return target().getWriteConcern();
+    }
+
+    @Override
+    public ReadConcern getReadConcern() {
+        return target().getReadConcern();
+    }
+
+    @Override
+    public MongoDatabase withCodecRegistry(CodecRegistry codecRegistry) {
+        return new ReconnectingDatabase(current, client -> target(client).withCodecRegistry(codecRegistry));
+    }
+
+    @Override
+    public MongoDatabase withReadPreference(ReadPreference readPreference) {
+        return new ReconnectingDatabase(current, client -> target(client).withReadPreference(readPreference));
+    }
+
+    @Override
+    public MongoDatabase withWriteConcern(WriteConcern writeConcern) {
+        return new ReconnectingDatabase(current, client -> target(client).withWriteConcern(writeConcern));
+    }
+
+    @Override
+    public MongoDatabase withReadConcern(ReadConcern readConcern) {
+        return new ReconnectingDatabase(current, client -> target(client).withReadConcern(readConcern));
+    }
+
+    @Override
+    public MongoCollection<Document> getCollection(String collectionName) {
+        return new ReconnectingCollection<>(current, client -> target(client).getCollection(collectionName));
+    }
+
+    @Override
+    public <TDocument> MongoCollection<TDocument> getCollection(String collectionName, Class<TDocument> resultClass) {
+        return new ReconnectingCollection<>(current, client -> target(client).getCollection(collectionName, resultClass));
+    }
+
+    @Override
+    public Document runCommand(Bson command) {
+        return target().runCommand(command);
+    }
+
+    @Override
+    public Document runCommand(Bson command, ReadPreference readPreference) {
+        return target().runCommand(command, readPreference);
+    }
+
+    @Override
+    public <TResult> TResult runCommand(Bson command, Class<TResult> resultClass) {
+        return target().runCommand(command, resultClass);
+    }
+
+    @Override
+    public <TResult> TResult runCommand(Bson command, ReadPreference readPreference, Class<TResult> resultClass) {
+        return target().runCommand(command, readPreference, resultClass);
+    }
+
+    @Override
+    public Document runCommand(ClientSession clientSession, Bson command) {
+        return target().runCommand(clientSession, command);
+    }
+
+    @Override
+    public Document runCommand(ClientSession clientSession, Bson command, ReadPreference readPreference) {
+        return target().runCommand(clientSession, command, readPreference);
+    }
+
+    @Override
+    public <TResult> TResult runCommand(ClientSession clientSession, Bson command, Class<TResult> resultClass) {
+        return target().runCommand(clientSession, command, resultClass);
+    }
+
+    @Override
+    public <TResult> TResult runCommand(ClientSession clientSession, Bson command, ReadPreference readPreference, Class<TResult> resultClass) {
+        return target().runCommand(clientSession, command, readPreference, resultClass);
+    }
+
+    @Override
+    public void drop() {
+        target().drop();
+    }
+
+    @Override
+    public void drop(ClientSession clientSession) {
+        target().drop(clientSession);
+    }
+
+    @Override
+    public MongoIterable<String> listCollectionNames() {
+        return target().listCollectionNames();
+    }
+
+    @Override
+    public ListCollectionsIterable<Document> listCollections() {
+        return target().listCollections();
+    }
+
+    @Override
+    public <TResult> ListCollectionsIterable<TResult> listCollections(Class<TResult> resultClass) {
+        return target().listCollections(resultClass);
+    }
+
+    @Override
+    public MongoIterable<String> listCollectionNames(ClientSession clientSession) {
+        return target().listCollectionNames(clientSession);
+    }
+
+    @Override
+    public ListCollectionsIterable<Document> listCollections(ClientSession clientSession) {
+        return target().listCollections(clientSession);
+    }
+
+    @Override
+    public <TResult> ListCollectionsIterable<TResult> listCollections(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().listCollections(clientSession, resultClass);
+    }
+
+    @Override
+    public void createCollection(String collectionName) {
+        target().createCollection(collectionName);
+    }
+
+    @Override
+    public void createCollection(String collectionName, CreateCollectionOptions options) {
+        target().createCollection(collectionName, options);
+    }
+
+    @Override
+    public void createCollection(ClientSession clientSession, String collectionName) {
+        target().createCollection(clientSession, collectionName);
+    }
+
+    @Override
+    public void createCollection(ClientSession clientSession, String collectionName, CreateCollectionOptions options) {
+        target().createCollection(clientSession, collectionName, options);
+    }
+
+    @Override
+    public void createView(String viewName, String viewOn, List<? extends Bson> pipeline) {
+        target().createView(viewName, viewOn, pipeline);
+    }
+
+    @Override
+    public void createView(String viewName, String viewOn, List<? extends Bson> pipeline, CreateViewOptions options) {
+        target().createView(viewName, viewOn, pipeline, options);
+    }
+
+    @Override
+    public void createView(ClientSession clientSession, String viewName, String viewOn, List<? extends Bson> pipeline) {
+        target().createView(clientSession, viewName, viewOn, pipeline);
+    }
+
+    @Override
+    public void createView(ClientSession clientSession, String viewName, String viewOn, List<? extends Bson> pipeline, CreateViewOptions options) {
+        target().createView(clientSession, viewName, viewOn, pipeline, options);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch() {
+        return target().watch();
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(Class<TResult> resultClass) {
+        return target().watch(resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(List<? extends Bson> pipeline) {
+        return target().watch(pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(pipeline, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(ClientSession clientSession) {
+        return target().watch(clientSession);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, Class<TResult> resultClass) {
+        return target().watch(clientSession, resultClass);
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch(ClientSession clientSession, List<? extends Bson> pipeline) {
+        return target().watch(clientSession, pipeline);
+    }
+
+    @Override
+    public <TResult> ChangeStreamIterable<TResult> watch(ClientSession clientSession, List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().watch(clientSession, pipeline, resultClass);
+    }
+
+    @Override
+    public AggregateIterable<Document> aggregate(List<? extends Bson> pipeline) {
+        return target().aggregate(pipeline);
+    }
+
+    @Override
+    public <TResult> AggregateIterable<TResult> aggregate(List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().aggregate(pipeline, resultClass);
+    }
+
+    @Override
+    public AggregateIterable<Document> aggregate(ClientSession clientSession, List<? extends Bson> pipeline) {
+        return target().aggregate(clientSession, pipeline);
+    }
+
+    @Override
+    public <TResult> AggregateIterable<TResult> aggregate(ClientSession clientSession, List<? extends Bson> pipeline, Class<TResult> resultClass) {
+        return target().aggregate(clientSession, pipeline, resultClass);
+    }
+}
@@ -0,0 +1,63 @@
+package org.aygo.core;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base of the delegating wrappers that bind a {@link MongoClient}, and every {@link MongoDatabase}
+ * and {@link MongoCollection} obtained from it, to whichever client {@link MongoSupport} currently
+ * holds. Handlers keep their databases and collections in static final fields; after a checkpoint
+ * closes the client and a restore opens a new one, those fields re-resolve against the new client
+ * on their next call instead of failing on a closed one.
+ *
+ * <p>A database or collection wrapper remembers the call that produced it and replays it once per
+ * underlying client; after that each call is one volatile read, one reference comparison and a
+ * direct call on the driver object. Everything else (iterables, sessions, results) is returned
+ * as-is from the current client, since it only lives for one request.
+ */
+abstract class ReconnectingMongo<T> {
+    final Supplier<MongoClient> current;
+    private final Function<MongoClient, T> resolver;
+    private volatile Binding<T> binding;
+
+    ReconnectingMongo(Supplier<MongoClient> current, Function<MongoClient, T> resolver) {
+        this.current = current;
+        this.resolver = resolver;
+    }
+
+    private static final class Binding<T> {
+        private final MongoClient client;
+        private final T target;
+
+        Binding(MongoClient client, T target) {
+            this.client = client;
+            this.target = target;
+        }
+    }
+
+    static MongoClient client(Supplier<MongoClient> current) {
+        return new ReconnectingClient(current);
+    }
+
+    final T target() {
+        return target(current.get());
+    }
+
+    final T target(MongoClient client) {
+        Binding<T> bound = binding;
+        if (bound == null || bound.client != client) {
+            bound = new Binding<>(client, resolver.apply(client));
+            binding = bound;
+        }
+        return bound.target;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectingMongo[" + target() + "]";
+    }
+}
@@ -0,0 +1,12 @@
+package org.aygo.core;
+
+/**
+ * Hook invoked by {@link Router} once per request, after the response has been built.
+ */
+@FunctionalInterface
+public interface RequestMetrics {
+    RequestMetrics NOOP = (method, route, statusCode, elapsedNanos) -> {
+    };
+
+    void record(String method, String route, int statusCode, long elapsedNanos);
+}
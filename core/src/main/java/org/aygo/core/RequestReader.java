@@ -0,0 +1,13 @@
+package org.aygo.core;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Reads one request object from a {@link JsonReader} positioned at its opening brace.
+ */
+@FunctionalInterface
+public interface RequestReader<T> {
+    T read(JsonReader reader) throws IOException;
+}
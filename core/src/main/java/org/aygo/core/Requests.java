@@ -0,0 +1,31 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import java.util.Map;
+
+public final class Requests {
+    private Requests() {
+    }
+
+    /**
+     * Looks up a request header ignoring case, since API Gateway forwards headers as the client
+     * sent them.
+     */
+    public static String header(APIGatewayProxyRequestEvent input, String name) {
+        Map<String, String> headers = input.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.Map;
+
+/**
+ * Factories for the proxy responses returned by every handler. Events are handed to the Lambda
+ * runtime after the handler returns, so each call builds a fresh one instead of reusing instances.
+ */
+public final class Responses {
+    private Responses() {
+    }
+
+    public static APIGatewayProxyResponseEvent ok(String body) {
+        return build(HttpStatus.OK, body, null);
+    }
+
+    public static APIGatewayProxyResponseEvent ok(String body, Map<String, String> headers) {
+        return build(HttpStatus.OK, body, headers);
+    }
+
+    public static APIGatewayProxyResponseEvent created(String body) {
+        return build(HttpStatus.CREATED, body, null);
+    }
+
+    public static APIGatewayProxyResponseEvent created(String body, Map<String, String> headers) {
+        return build(HttpStatus.CREATED, body, headers);
+    }
+
+    public static APIGatewayProxyResponseEvent notModified(Map<String, String> headers) {
+        return build(HttpStatus.NOT_MODIFIED, null, headers);
+    }
+
+    public static APIGatewayProxyResponseEvent error(int statusCode, String message) {
+        return build(statusCode, message, null);
+    }
+
+    public static APIGatewayProxyResponseEvent build(int statusCode, String body, Map<String, String> headers) {
+        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
+        responseEvent.setStatusCode(statusCode);
+        responseEvent.setBody(body);
+        if (headers != null && !headers.isEmpty()) {
+            responseEvent.setHeaders(headers);
+        }
+        return responseEvent;
+    }
+}
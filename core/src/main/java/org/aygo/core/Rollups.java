@@ -0,0 +1,205 @@
+package org.aygo.core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated per-user and per-driver totals, one document per owner keyed by {@code (type, id)}:
+ * {@code total} is the sum of the owner's payment amounts, {@code paymentCount} the number of those
+ * payments, and {@code tripCount} the number of rides the owner was assigned to, counted by the
+ * rides service when a claim, a booking or an update gives a ride a passenger. Writers send deltas
+ * with {@code $inc} as part of the write that changes the underlying data, so a profile read costs
+ * one indexed lookup instead of an aggregation over payments and rides.
+ *
+ * <p>A delta is applied after the write it belongs to and a failure is only logged, so a crash in
+ * between leaves the rollup behind; {@code RollupReconciler} recomputes the payment totals from the
+ * payments and repairs the drift. A released ride keeps no record of its passenger, so
+ * {@code tripCount} has no source to be rebuilt from and the reconciler leaves it untouched.
+ */
+public final class Rollups {
+    public static final String ENV_MONGO_ROLLUPS_COLLECTION = "MONGO_ROLLUPS_COLLECTION";
+    public static final String QUERY_PARAM_INCLUDE = "include";
+    public static final String INCLUDE_ROLLUP = "rollup";
+
+    public static final String TYPE_USER = "user";
+    public static final String TYPE_DRIVER = "driver";
+
+    public static final String FIELD_TYPE = "type";
+    public static final String FIELD_ID = "id";
+    public static final String FIELD_TOTAL = "total";
+    public static final String FIELD_PAYMENT_COUNT = "paymentCount";
+    public static final String FIELD_TRIP_COUNT = "tripCount";
+
+    private static final String DEFAULT_COLLECTION = "rollups";
+    private static final String FIELD_ROLLUP = "rollup";
+
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_TYPE, FIELD_ID), new IndexOptions().unique(true))
+    );
+    private static final Bson ROLLUP_PROJECTION = Projections.fields(
+            Projections.include(FIELD_TOTAL, FIELD_PAYMENT_COUNT, FIELD_TRIP_COUNT),
+            Projections.excludeId()
+    );
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> collection;
+
+    private Rollups(MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Opens the collection named by {@value #ENV_MONGO_ROLLUPS_COLLECTION} (default
+     * {@value #DEFAULT_COLLECTION}) and ensures its unique {@code (type, id)} index.
+     */
+    public static Rollups forDatabase(MongoDatabase database) {
+        String name = System.getenv(ENV_MONGO_ROLLUPS_COLLECTION);
+        MongoCollection<Document> collection = database.getCollection(
+                name == null || name.isBlank() ? DEFAULT_COLLECTION : name);
+        MongoSupport.ensureIndexes(collection, INDEXES);
+        return new Rollups(collection);
+    }
+
+    public MongoCollection<Document> collection() {
+        return collection;
+    }
+
+    public static boolean requested(Map<String, String> parameters) {
+        return parameters != null && INCLUDE_ROLLUP.equals(parameters.get(QUERY_PARAM_INCLUDE));
+    }
+
+    public static Bson key(String type, String id) {
+        return Filters.and(Filters.eq(FIELD_TYPE, type), Filters.eq(FIELD_ID, id));
+    }
+
+    /**
+     * Copies a serialised JSON object and appends a
+     * {@code "rollup": {"total", "paymentCount", "tripCount"}} member, with zeros when the owner has
+     * no rollup yet. The object itself may come from a cache; only the rollup is read, with one
+     * lookup on the unique index.
+     */
+    public String embed(String object, String type, String id) {
+        Document rollup = collection.find(key(type, id)).projection(ROLLUP_PROJECTION).first();
+        StringWriter buffer = new StringWriter();
+        try (JsonReader reader = Json.gson().newJsonReader(new StringReader(object));
+             JsonWriter writer = Json.gson().newJsonWriter(buffer)) {
+            reader.beginObject();
+            writer.beginObject();
+            while (reader.hasNext()) {
+                writer.name(reader.nextName());
+                Json.copy(reader, writer);
+            }
+            reader.endObject();
+            writer.name(FIELD_ROLLUP);
+            writeRollup(writer, rollup);
+            writer.endObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return buffer.toString();
+    }
+
+    private static void writeRollup(JsonWriter writer, Document rollup) throws IOException {
+        Number total = rollup == null ? null : rollup.get(FIELD_TOTAL, Number.class);
+        Number paymentCount = rollup == null ? null : rollup.get(FIELD_PAYMENT_COUNT, Number.class);
+        Number tripCount = rollup == null ? null : rollup.get(FIELD_TRIP_COUNT, Number.class);
+        writer.beginObject();
+        writer.name(FIELD_TOTAL).value(total == null ? 0.0 : total.doubleValue());
+        writer.name(FIELD_PAYMENT_COUNT).value(paymentCount == null ? 0L : paymentCount.longValue());
+        writer.name(FIELD_TRIP_COUNT).value(tripCount == null ? 0L : tripCount.longValue());
+        writer.endObject();
+    }
+
+    public Changes changes() {
+        return new Changes();
+    }
+
+    /**
+     * Deltas collected while handling one request, merged per owner so that moving a payment
+     * between owners, or rewriting it unchanged, costs at most one write per owner and none when
+     * the deltas cancel out.
+     */
+    public final class Changes {
+        private final Map<List<String>, double[]> deltas = new LinkedHashMap<>();
+
+        private Changes() {
+        }
+
+        /**
+         * @param sign {@code 1} to add the amount and one payment, {@code -1} to remove them
+         */
+        public Changes add(String type, String id, Number amount, int sign) {
+            if (id == null || id.isBlank()) {
+                return this;
+            }
+            double[] delta = deltas.computeIfAbsent(List.of(type, id), key -> new double[3]);
+            delta[0] += sign * (amount == null ? 0 : amount.doubleValue());
+            delta[1] += sign;
+            return this;
+        }
+
+        /**
+         * Counts one more trip for the owner.
+         */
+        public Changes trip(String type, String id) {
+            if (id == null || id.isBlank()) {
+                return this;
+            }
+            deltas.computeIfAbsent(List.of(type, id), key -> new double[3])[2]++;
+            return this;
+        }
+
+        public void apply() {
+            List<WriteModel<Document>> writes = new ArrayList<>(deltas.size());
+            for (Map.Entry<List<String>, double[]> entry : deltas.entrySet()) {
+                double[] delta = entry.getValue();
+                if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0) {
+                    continue;
+                }
+                writes.add(new UpdateOneModel<>(
+                        key(entry.getKey().get(0), entry.getKey().get(1)),
+                        Updates.combine(
+                                Updates.inc(FIELD_TOTAL, delta[0]),
+                                Updates.inc(FIELD_PAYMENT_COUNT, (long) delta[1]),
+                                Updates.inc(FIELD_TRIP_COUNT, (long) delta[2])
+                        ),
+                        UPSERT));
+            }
+            if (writes.isEmpty()) {
+                return;
+            }
+            try {
+                collection.bulkWrite(writes, UNORDERED);
+            } catch (MongoException exception) {
+                System.err.println("Failed to update " + writes.size() + " rollups: " + exception.getMessage());
+            }
+        }
+    }
+}
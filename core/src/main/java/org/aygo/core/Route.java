@@ -0,0 +1,9 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+@FunctionalInterface
+public interface Route {
+    APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input);
+}
@@ -0,0 +1,184 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routing table for a handler. Routes are matched on HTTP method and, optionally, on a path
+ * suffix; suffix routes are tried in registration order before the method's default route.
+ */
+public final class Router {
+    public static final String HTTP_METHOD_GET = "GET";
+    public static final String HTTP_METHOD_POST = "POST";
+    public static final String HTTP_METHOD_PUT = "PUT";
+    public static final String HTTP_METHOD_DELETE = "DELETE";
+
+    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
+    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
+
+    private static final String DEFAULT_ROUTE_NAME = "/";
+    private static final String UNMATCHED_ROUTE_NAME = "unmatched";
+
+    private final List<Entry> entries;
+    private final RequestMetrics metrics;
+
+    private Router(List<Entry> entries, RequestMetrics metrics) {
+        this.entries = entries;
+        this.metrics = metrics;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final class Entry {
+        private final String method;
+        private final String pathSuffix;
+        private final Route route;
+
+        Entry(String method, String pathSuffix, Route route) {
+            this.method = method;
+            this.pathSuffix = pathSuffix;
+            this.route = route;
+        }
+
+        boolean matches(String requestMethod, String path) {
+            if (!method.equals(requestMethod)) {
+                return false;
+            }
+            return pathSuffix == null || (path != null && path.endsWith(pathSuffix));
+        }
+
+        String name() {
+            return pathSuffix == null ? DEFAULT_ROUTE_NAME : pathSuffix;
+        }
+    }
+
+    public static final class Builder {
+        private final List<Entry> suffixEntries = new ArrayList<>();
+        private final List<Entry> defaultEntries = new ArrayList<>();
+        private RequestMetrics metrics = EmfMetrics.instance().isEnabled() ? EmfMetrics.instance() : RequestMetrics.NOOP;
+
+        private Builder() {
+        }
+
+        public Builder get(Route route) {
+            return route(HTTP_METHOD_GET, null, route);
+        }
+
+        public Builder get(String pathSuffix, Route route) {
+            return route(HTTP_METHOD_GET, pathSuffix, route);
+        }
+
+        public Builder post(Route route) {
+            return route(HTTP_METHOD_POST, null, route);
+        }
+
+        public Builder post(String pathSuffix, Route route) {
+            return route(HTTP_METHOD_POST, pathSuffix, route);
+        }
+
+        public Builder put(Route route) {
+            return route(HTTP_METHOD_PUT, null, route);
+        }
+
+        public Builder put(String pathSuffix, Route route) {
+            return route(HTTP_METHOD_PUT, pathSuffix, route);
+        }
+
+        public Builder delete(Route route) {
+            return route(HTTP_METHOD_DELETE, null, route);
+        }
+
+        public Builder route(String method, String pathSuffix, Route route) {
+            Entry entry = new Entry(method, pathSuffix, route);
+            if (pathSuffix == null) {
+                defaultEntries.add(entry);
+            } else {
+                suffixEntries.add(entry);
+            }
+            return this;
+        }
+
+        public Builder metrics(RequestMetrics metrics) {
+            this.metrics = metrics == null ? RequestMetrics.NOOP : metrics;
+            return this;
+        }
+
+        public Router build() {
+            List<Entry> entries = new ArrayList<>(suffixEntries);
+            entries.addAll(defaultEntries);
+            return new Router(List.copyOf(entries), metrics);
+        }
+    }
+
+    public APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent input, Context context) {
+        long startNanos = System.nanoTime();
+        String method = input.getHttpMethod();
+        Entry entry = find(method, input.getPath());
+        String routeName = entry == null ? UNMATCHED_ROUTE_NAME : entry.name();
+        if (metrics instanceof EmfMetrics) {
+            Phases.begin((EmfMetrics) metrics, EmfMetrics.routeName(method, routeName), startNanos);
+        }
+        QueryPlanVerifier verifier = QueryPlanVerifier.instance();
+        verifier.begin();
+        APIGatewayProxyResponseEvent response;
+        long elapsedNanos;
+        try {
+            try {
+                if (entry == null) {
+                    response = Responses.error(HttpStatus.METHOD_NOT_ALLOWED, MESSAGE_METHOD_NOT_ALLOWED);
+                } else {
+                    response = entry.route.handle(input);
+                }
+            } catch (RuntimeException exception) {
+                log(context, exception);
+                response = Responses.error(HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
+            } finally {
+                Phases.end();
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+            if (verifier.isEnabled()) {
+                response = verifyQueryPlans(verifier, response, context);
+            }
+        } finally {
+            verifier.end();
+        }
+        metrics.record(method, routeName, response.getStatusCode(), elapsedNanos);
+        Startup.recordRequest(elapsedNanos);
+        return response;
+    }
+
+    /**
+     * Runs after the latency is taken, so the explain round trips do not count towards it.
+     */
+    private static APIGatewayProxyResponseEvent verifyQueryPlans(QueryPlanVerifier verifier,
+                                                                 APIGatewayProxyResponseEvent response, Context context) {
+        try {
+            verifier.verify(MongoSupport.client());
+            return response;
+        } catch (RuntimeException exception) {
+            log(context, exception);
+            return Responses.error(HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
+        }
+    }
+
+    private static void log(Context context, RuntimeException exception) {
+        if (context != null && context.getLogger() != null) {
+            context.getLogger().log(exception.getMessage());
+        }
+    }
+
+    private Entry find(String method, String path) {
+        for (Entry entry : entries) {
+            if (entry.matches(method, path)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package org.aygo.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reports how long a container took to become useful, as timers on the {@value #ROUTE} route and as
+ * a line on stderr:
+ * <ul>
+ *     <li>{@code ColdStart.Init}: JVM start to the first request, covering class loading and the
+ *     handlers' static initialisation;</li>
+ *     <li>{@code Restore.Init}: time spent in the restore hooks reopening the Mongo pool;</li>
+ *     <li>{@code ColdStart.FirstRequest} and {@code Restore.FirstRequest}: the first request after
+ *     each kind of start;</li>
+ *     <li>{@code WarmStart.Request}: the request after that, the first to find the container
+ *     already initialised.</li>
+ * </ul>
+ * Requests sent while priming for a checkpoint are not counted.
+ */
+public final class Startup {
+    static final String ROUTE = "Startup";
+
+    private static final String COLD_START = "ColdStart";
+    private static final String RESTORE = "Restore";
+    private static final String WARM_START = "WarmStart";
+    private static final String INIT = ".Init";
+    private static final String FIRST_REQUEST = ".FirstRequest";
+    private static final String REQUEST = ".Request";
+
+    private static final AtomicReference<String> PENDING = new AtomicReference<>(COLD_START);
+    private static final AtomicBoolean WARM_PENDING = new AtomicBoolean();
+    private static volatile boolean suspended;
+
+    private Startup() {
+    }
+
+    static void recordRequest(long elapsedNanos) {
+        if (suspended) {
+            return;
+        }
+        String start = PENDING.getAndSet(null);
+        if (start != null) {
+            if (COLD_START.equals(start)) {
+                long uptimeNanos = TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+                report(COLD_START + INIT, uptimeNanos - elapsedNanos);
+            }
+            report(start + FIRST_REQUEST, elapsedNanos);
+            WARM_PENDING.set(true);
+        } else if (WARM_PENDING.compareAndSet(true, false)) {
+            report(WARM_START + REQUEST, elapsedNanos);
+        }
+    }
+
+    static void restored(long elapsedNanos) {
+        report(RESTORE + INIT, elapsedNanos);
+        WARM_PENDING.set(false);
+        PENDING.set(RESTORE);
+    }
+
+    static void suspend(boolean value) {
+        suspended = value;
+    }
+
+    private static void report(String name, long elapsedNanos) {
+        EmfMetrics.instance().recordTimer(ROUTE, name, elapsedNanos);
+        System.err.println(ROUTE + " " + name + " " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
+    }
+}
@@ -0,0 +1,94 @@
+package org.aygo.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of serialised summaries, meant to live in a handler's static scope next to the
+ * Mongo client so it survives across invocations of a warm container. Entries expire after the
+ * configured TTL, which bounds how stale a read can be when another container writes the same
+ * entity; writes served by this container replace the entry directly. Lookups are counted as
+ * {@code CacheHits} and {@code CacheMisses} on the route serving them.
+ */
+public final class SummaryCache {
+    public static final String ENV_CACHE_MAX_ENTRIES = "CACHE_MAX_ENTRIES";
+    public static final String ENV_CACHE_TTL_MILLIS = "CACHE_TTL_MILLIS";
+    public static final String HEADER_CACHE = "X-Cache";
+    public static final String CACHE_HIT = "HIT";
+    public static final String CACHE_MISS = "MISS";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_MILLIS = 2_000;
+    private static final String COUNTER_HITS = "CacheHits";
+    private static final String COUNTER_MISSES = "CacheMisses";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public SummaryCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SummaryCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static SummaryCache fromEnvironment() {
+        return new SummaryCache(
+                MongoSupport.envInt(ENV_CACHE_MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                MongoSupport.envLong(ENV_CACHE_TTL_MILLIS, DEFAULT_TTL_MILLIS));
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresAtNanos;
+
+        Entry(String value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlNanos > 0;
+    }
+
+    public Optional<String> get(String key) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos - System.nanoTime() > 0) {
+                Phases.count(COUNTER_HITS);
+                return Optional.of(entry.value);
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        Phases.count(COUNTER_MISSES);
+        return Optional.empty();
+    }
+
+    public void put(String key, String value) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+}
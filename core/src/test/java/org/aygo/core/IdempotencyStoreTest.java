@@ -0,0 +1,152 @@
+package org.aygo.core;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+import org.bson.Document;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the mongod configured through {@code MONGO_URI} and {@code MONGO_DB}, in an
+ * {@code idempotency_test_idempotency} collection; skipped when {@code MONGO_URI} is not set.
+ */
+class IdempotencyStoreTest {
+    private static final int REQUESTS = 16;
+    private static final long PENDING_MILLIS = 30_000;
+    private static final String BODY = "{\"userId\":\"u_test\",\"amount\":12.5,\"rideId\":\"r_test\"}";
+
+    private static IdempotencyStore store;
+    private static MongoCollection<Document> keys;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private String key;
+
+    @BeforeAll
+    static void connect() {
+        assumeTrue(System.getenv(MongoSupport.ENV_MONGO_URI) != null, "MONGO_URI is not set");
+        MongoDatabase database = MongoSupport.database(MongoSupport.client());
+        store = IdempotencyStore.forCollection(database, database.getCollection("idempotency_test"), PENDING_MILLIS);
+        keys = database.getCollection("idempotency_test_idempotency");
+    }
+
+    @BeforeEach
+    void newKey() {
+        key = "key_" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void removeKey() {
+        keys.deleteOne(Filters.eq("key", key));
+    }
+
+    private APIGatewayProxyRequestEvent request() {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(Router.HTTP_METHOD_POST)
+                .withPath("/payments")
+                .withHeaders(Map.of(IdempotencyStore.HEADER_IDEMPOTENCY_KEY, key))
+                .withBody(BODY);
+    }
+
+    private APIGatewayProxyResponseEvent slowCreate(APIGatewayProxyRequestEvent input) {
+        executions.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        return Responses.created("{\"id\":\"pay_test\"}");
+    }
+
+    @Test
+    void parallelRequestsWithOneKeyRunTheRouteOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<APIGatewayProxyResponseEvent>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return store.execute(request(), this::slowCreate);
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            int replayed = 0;
+            int inProgress = 0;
+            for (Future<APIGatewayProxyResponseEvent> future : responses) {
+                APIGatewayProxyResponseEvent response = future.get();
+                boolean isReplay = response.getHeaders() != null
+                        && response.getHeaders().containsKey(IdempotencyStore.HEADER_IDEMPOTENT_REPLAY);
+                if (response.getStatusCode() == HttpStatus.CREATED && !isReplay) {
+                    created++;
+                } else if (response.getStatusCode() == HttpStatus.CREATED) {
+                    replayed++;
+                } else if (response.getStatusCode() == HttpStatus.CONFLICT) {
+                    inProgress++;
+                }
+            }
+            assertEquals(1, executions.get());
+            assertEquals(1, created);
+            assertEquals(REQUESTS - 1, replayed + inProgress);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        APIGatewayProxyResponseEvent retry = store.execute(request(), this::slowCreate);
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(Boolean.TRUE.toString(), retry.getHeaders().get(IdempotencyStore.HEADER_IDEMPOTENT_REPLAY));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void retryTakesOverAnAbandonedReservation() {
+        Date past = new Date(System.currentTimeMillis() - 2 * PENDING_MILLIS);
+        keys.insertOne(new Document("key", key)
+                .append("requestHash", IdempotencyStore.hash(BODY))
+                .append("createdAt", past)
+                .append("pendingUntil", new Date(past.getTime() + PENDING_MILLIS)));
+
+        APIGatewayProxyResponseEvent response = store.execute(request(), this::slowCreate);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNull(response.getHeaders());
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, keys.find(Filters.eq("key", key)).first().getInteger("statusCode"));
+    }
+
+    @Test
+    void liveReservationIsReportedAsInProgress() {
+        keys.insertOne(new Document("key", key)
+                .append("requestHash", IdempotencyStore.hash(BODY))
+                .append("createdAt", new Date())
+                .append("pendingUntil", new Date(System.currentTimeMillis() + PENDING_MILLIS)));
+
+        APIGatewayProxyResponseEvent response = store.execute(request(), this::slowCreate);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(0, executions.get());
+    }
+}
@@ -5,38 +5,71 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
-import com.mongodb.client.result.UpdateResult;
+import com.mongodb.client.model.geojson.Point;
+import com.mongodb.client.model.geojson.Position;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 
+import org.aygo.core.BatchItemResult;
+import org.aygo.core.BatchWriter;
+import org.aygo.core.Checkpoints;
+import org.aygo.core.HttpStatus;
+import org.aygo.core.Json;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.PageRequest;
+import org.aygo.core.Phases;
+import org.aygo.core.QueryFilter;
+import org.aygo.core.RawDocumentWriter;
+import org.aygo.core.Responses;
+import org.aygo.core.Rollups;
+import org.aygo.core.Router;
+import org.aygo.core.SummaryCache;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
-    private static final String HTTP_METHOD_GET = "GET";
-    private static final String HTTP_METHOD_POST = "POST";
-    private static final String HTTP_METHOD_PUT = "PUT";
-    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
     private static final String MESSAGE_DRIVER_NOT_FOUND = "Driver not found";
     private static final String MESSAGE_INVALID_BODY = "Invalid request body";
-    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
     private static final String QUERY_PARAM_DRIVER_ID = "id";
+    private static final String QUERY_PARAM_LAT = "lat";
+    private static final String QUERY_PARAM_LNG = "lng";
+    private static final String QUERY_PARAM_K = "k";
+    private static final String QUERY_PARAM_BUSY = "busy";
+
+    private static final String PATH_BASE = "/drivers";
+    private static final String PATH_NEAREST = "/nearest";
+    private static final String PATH_BATCH = "/batch";
+
+    private static final int DEFAULT_NEAREST_COUNT = 5;
+    private static final int MAX_NEAREST_COUNT = 50;
 
     private static final String DRIVER_ID_PREFIX = "d_";
 
-    private static final String ENV_MONGO_URI = "MONGO_URI";
-    private static final String ENV_MONGO_DB = "MONGO_DB";
     private static final String ENV_MONGO_COLLECTION = "MONGO_COLLECTION";
+    private static final String ENV_DRIVERS_COLLECTION = "MONGO_DRIVERS_COLLECTION";
 
     private static final String FIELD_ID = "id";
     private static final String FIELD_NAME = "name";
@@ -44,40 +77,87 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
     private static final String FIELD_TRAVEL = "travel";
     private static final String FIELD_BUSY = "busy";
     private static final String FIELD_CAR = "car";
+    private static final String FIELD_LOCATION = "location";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_COORDINATES = "coordinates";
+    private static final String FIELD_LAT = "lat";
+    private static final String FIELD_LNG = "lng";
 
-    private static final MongoClient MONGO_CLIENT = createMongoClient();
-    private static final MongoDatabase MONGO_DATABASE = createMongoDatabase(MONGO_CLIENT);
-    private static final MongoCollection<Document> DRIVERS_COLLECTION = createDriversCollection(MONGO_DATABASE);
+    private static final String PROPERTY_RIDE_ID = "rideId";
 
-    private final Gson gson = new Gson();
+    private static final String GEOJSON_POINT = "Point";
 
-    private static MongoClient createMongoClient() {
-        String mongoUri = System.getenv(ENV_MONGO_URI);
-        if (mongoUri == null || mongoUri.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_URI);
-        }
-        return MongoClients.create(mongoUri);
-    }
+    private static final MongoClient MONGO_CLIENT = MongoSupport.client();
+    private static final MongoDatabase MONGO_DATABASE = MongoSupport.database(MONGO_CLIENT);
+    private static final MongoCollection<Document> DRIVERS_COLLECTION = MongoSupport.collection(MONGO_DATABASE, ENV_DRIVERS_COLLECTION, ENV_MONGO_COLLECTION);
 
-    private static MongoDatabase createMongoDatabase(MongoClient client) {
-        String databaseName = System.getenv(ENV_MONGO_DB);
-        if (databaseName == null || databaseName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_DB);
-        }
-        return client.getDatabase(databaseName);
+    private static final IndexOptions UNIQUE = new IndexOptions().unique(true);
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_ID), UNIQUE),
+            new IndexModel(Indexes.ascending(FIELD_BUSY, FIELD_ID)),
+            new IndexModel(Indexes.geo2dsphere(FIELD_LOCATION))
+    );
+
+    static {
+        MongoSupport.ensureIndexes(DRIVERS_COLLECTION, INDEXES);
     }
 
-    private static MongoCollection<Document> createDriversCollection(MongoDatabase database) {
-        String collectionName = System.getenv(ENV_MONGO_COLLECTION);
-        if (collectionName == null || collectionName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_COLLECTION);
-        }
-        return database.getCollection(collectionName);
+    private static final QueryFilter LIST_FILTER = QueryFilter.builder()
+            .bool(QUERY_PARAM_BUSY, FIELD_BUSY)
+            .build();
+    private static final RawDocumentWriter LIST_WRITER = RawDocumentWriter.builder()
+            .string(FIELD_ID)
+            .string(FIELD_NAME)
+            .bool(FIELD_TRAVELING, false)
+            .string(FIELD_TRAVEL)
+            .bool(FIELD_BUSY, false)
+            .string(FIELD_CAR)
+            .point(FIELD_LOCATION, FIELD_LAT, FIELD_LNG)
+            .build();
+
+    private static final SummaryCache DRIVER_CACHE = SummaryCache.fromEnvironment();
+    private static final Rollups ROLLUPS = Rollups.forDatabase(MONGO_DATABASE);
+    private static final Map<String, String> CACHE_HIT_HEADERS = Map.of(SummaryCache.HEADER_CACHE, SummaryCache.CACHE_HIT);
+    private static final Map<String, String> CACHE_MISS_HEADERS = Map.of(SummaryCache.HEADER_CACHE, SummaryCache.CACHE_MISS);
+
+    private static final FindOneAndUpdateOptions RETURN_UPDATED = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.AFTER);
+
+    private final Gson gson = Json.gson();
+    private final Router router = Router.builder()
+            .get(PATH_NEAREST, this::buildNearestResponse)
+            .get(this::buildGetResponse)
+            .post(PATH_BATCH, this::createDrivers)
+            .post(this::createDriver)
+            .put(PATH_BATCH, this::updateTravels)
+            .put(this::updateTravel)
+            .build();
+
+    public Drivers() {
+        Checkpoints.prime(this, PATH_BASE);
     }
 
     private static class CreateDriverRequest {
         private String name;
         private String car;
+        private Double lat;
+        private Double lng;
+
+        static CreateDriverRequest read(JsonReader reader) throws IOException {
+            CreateDriverRequest request = new CreateDriverRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_NAME -> request.name = Json.nextString(reader);
+                    case FIELD_CAR -> request.car = Json.nextString(reader);
+                    case FIELD_LAT -> request.lat = Json.nextDouble(reader);
+                    case FIELD_LNG -> request.lng = Json.nextDouble(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
 
         String getName() {
             return name;
@@ -86,6 +166,14 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         String getCar() {
             return car;
         }
+
+        Double getLat() {
+            return lat;
+        }
+
+        Double getLng() {
+            return lng;
+        }
     }
 
     private static class TravelUpdateRequest {
@@ -94,6 +182,27 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         private String rideId;
         private Boolean busy;
         private String car;
+        private Double lat;
+        private Double lng;
+
+        static TravelUpdateRequest read(JsonReader reader) throws IOException {
+            TravelUpdateRequest request = new TravelUpdateRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_TRAVELING -> request.traveling = Json.nextBoolean(reader, request.traveling);
+                    case PROPERTY_RIDE_ID -> request.rideId = Json.nextString(reader);
+                    case FIELD_BUSY -> request.busy = Json.nextBoolean(reader);
+                    case FIELD_CAR -> request.car = Json.nextString(reader);
+                    case FIELD_LAT -> request.lat = Json.nextDouble(reader);
+                    case FIELD_LNG -> request.lng = Json.nextDouble(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
 
         String getId() {
             return id;
@@ -114,35 +223,76 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         String getCar() {
             return car;
         }
+
+        Double getLat() {
+            return lat;
+        }
+
+        Double getLng() {
+            return lng;
+        }
     }
 
-    @SuppressWarnings("unused")
-    private static class DriverSummary {
-        private final String id;
-        private final String name;
-        private final boolean traveling;
-        private final String travel;
-        private final boolean busy;
-        private final String car;
-
-        DriverSummary(Document source) {
-            this.id = source.getString(FIELD_ID);
-            this.name = source.getString(FIELD_NAME);
-            this.traveling = source.getBoolean(FIELD_TRAVELING, false);
-            this.travel = source.getString(FIELD_TRAVEL);
-            this.busy = source.getBoolean(FIELD_BUSY, false);
-            this.car = source.getString(FIELD_CAR);
+    /**
+     * @return {@code [lng, lat]} from the stored GeoJSON point, or {@code null} without two numeric
+     * coordinates. Other clients may store whole degrees as integers, so any number is accepted.
+     */
+    private static double[] coordinatesOf(Document source) {
+        Document location = source.get(FIELD_LOCATION, Document.class);
+        List<?> coordinates = location == null ? null : location.get(FIELD_COORDINATES, List.class);
+        if (coordinates == null || coordinates.size() < 2
+                || !(coordinates.get(0) instanceof Number) || !(coordinates.get(1) instanceof Number)) {
+            return null;
         }
+        return new double[]{((Number) coordinates.get(0)).doubleValue(), ((Number) coordinates.get(1)).doubleValue()};
+    }
+
+    private static boolean isValidPosition(Double lat, Double lng) {
+        return lat != null && lng != null
+                && lat >= -90 && lat <= 90
+                && lng >= -180 && lng <= 180;
+    }
+
+    private static Point toPoint(double lat, double lng) {
+        return new Point(new Position(lng, lat));
     }
 
-    private String serializeDrivers() {
-        ArrayList<DriverSummary> summaries = new ArrayList<>();
-        DRIVERS_COLLECTION.find().map(DriverSummary::new).into(summaries);
-        return gson.toJson(summaries);
+    private static Document toLocation(double lat, double lng) {
+        return new Document(FIELD_TYPE, GEOJSON_POINT).append(FIELD_COORDINATES, List.of(lng, lat));
+    }
+
+    private void writeDriver(JsonWriter writer, Document document) throws IOException {
+        double[] coordinates = coordinatesOf(document);
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_NAME).value(document.getString(FIELD_NAME));
+        writer.name(FIELD_TRAVELING).value(document.getBoolean(FIELD_TRAVELING, false));
+        writer.name(FIELD_TRAVEL).value(document.getString(FIELD_TRAVEL));
+        writer.name(FIELD_BUSY).value(document.getBoolean(FIELD_BUSY, false));
+        writer.name(FIELD_CAR).value(document.getString(FIELD_CAR));
+        if (coordinates == null) {
+            writer.name(FIELD_LAT).nullValue();
+            writer.name(FIELD_LNG).nullValue();
+        } else {
+            writer.name(FIELD_LAT).value(coordinates[1]);
+            writer.name(FIELD_LNG).value(coordinates[0]);
+        }
+        writer.endObject();
+    }
+
+    private String serializeNearestDrivers(double lat, double lng, int count) {
+        FindIterable<RawBsonDocument> nearest = DRIVERS_COLLECTION.withDocumentClass(RawBsonDocument.class)
+                .find(Filters.and(
+                        Filters.eq(FIELD_BUSY, false),
+                        Filters.nearSphere(FIELD_LOCATION, toPoint(lat, lng), null, null)
+                ))
+                .projection(LIST_WRITER.projection())
+                .limit(count);
+        return Json.writeRawArray(nearest, LIST_WRITER);
     }
 
     private String serializeDriver(Document document) {
-        return gson.toJson(new DriverSummary(document));
+        return Json.write(document, this::writeDriver);
     }
 
     private Optional<Document> findDriverById(String driverId) {
@@ -153,32 +303,37 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         return Optional.ofNullable(document);
     }
 
-    private APIGatewayProxyResponseEvent createDriver(APIGatewayProxyRequestEvent input) {
-        CreateDriverRequest request = gson.fromJson(input.getBody(), CreateDriverRequest.class);
+    private boolean isValidCreateRequest(CreateDriverRequest request) {
         if (request == null || request.getName() == null || request.getName().isBlank()) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+            return false;
         }
-        String driverId = DRIVER_ID_PREFIX + UUID.randomUUID();
+        boolean hasPosition = request.getLat() != null || request.getLng() != null;
+        return !hasPosition || isValidPosition(request.getLat(), request.getLng());
+    }
+
+    private boolean isValidUpdateRequest(TravelUpdateRequest request) {
+        if (request == null || request.getId() == null || request.getId().isBlank()) {
+            return false;
+        }
+        boolean hasPosition = request.getLat() != null || request.getLng() != null;
+        return !hasPosition || isValidPosition(request.getLat(), request.getLng());
+    }
+
+    private Document buildDriverDocument(CreateDriverRequest request) {
         Document document = new Document()
-                .append(FIELD_ID, driverId)
+                .append(FIELD_ID, DRIVER_ID_PREFIX + UUID.randomUUID())
                 .append(FIELD_NAME, request.getName())
                 .append(FIELD_TRAVELING, false)
                 .append(FIELD_TRAVEL, null)
                 .append(FIELD_BUSY, false)
                 .append(FIELD_CAR, request.getCar());
-        DRIVERS_COLLECTION.insertOne(document);
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(201);
-        responseEvent.setBody(serializeDriver(document));
-        return responseEvent;
-    }
-
-    private APIGatewayProxyResponseEvent updateTravel(APIGatewayProxyRequestEvent input) {
-        TravelUpdateRequest request = gson.fromJson(input.getBody(), TravelUpdateRequest.class);
-        if (request == null || request.getId() == null || request.getId().isBlank()) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+        if (request.getLat() != null) {
+            document.append(FIELD_LOCATION, toLocation(request.getLat(), request.getLng()));
         }
+        return document;
+    }
 
+    private Bson buildTravelUpdate(TravelUpdateRequest request) {
         ArrayList<Bson> updates = new ArrayList<>();
         updates.add(Updates.set(FIELD_TRAVELING, request.isTraveling()));
         updates.add(Updates.set(FIELD_TRAVEL, request.getRideId()));
@@ -188,25 +343,130 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         if (request.getCar() != null) {
             updates.add(Updates.set(FIELD_CAR, request.getCar()));
         }
+        if (request.getLat() != null) {
+            updates.add(Updates.set(FIELD_LOCATION, toLocation(request.getLat(), request.getLng())));
+        }
+        return Updates.combine(updates);
+    }
 
-        UpdateResult updateResult = DRIVERS_COLLECTION.updateOne(
+    private APIGatewayProxyResponseEvent createDriver(APIGatewayProxyRequestEvent input) {
+        CreateDriverRequest request = Json.read(input.getBody(), CreateDriverRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (!isValidCreateRequest(request)) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+        Document document = buildDriverDocument(request);
+        DRIVERS_COLLECTION.insertOne(document);
+        Phases.mark(Phases.DB);
+        return Responses.created(serializeDriver(document));
+    }
+
+    private APIGatewayProxyResponseEvent createDrivers(APIGatewayProxyRequestEvent input) {
+        List<CreateDriverRequest> requests = Json.readArray(input.getBody(), CreateDriverRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        BatchWriter batch = new BatchWriter(DRIVERS_COLLECTION, requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!isValidCreateRequest(requests.get(i))) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            Document document = buildDriverDocument(requests.get(i));
+            batch.add(i, document.getString(FIELD_ID), new InsertOneModel<>(document));
+        }
+        return Responses.ok(gson.toJson(batch.insert()));
+    }
+
+    private APIGatewayProxyResponseEvent updateTravels(APIGatewayProxyRequestEvent input) {
+        List<TravelUpdateRequest> requests = Json.readArray(input.getBody(), TravelUpdateRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        BatchWriter batch = new BatchWriter(DRIVERS_COLLECTION, requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!isValidUpdateRequest(requests.get(i))) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            String driverId = requests.get(i).getId();
+            batch.add(i, driverId, new UpdateOneModel<>(Filters.eq(FIELD_ID, driverId), buildTravelUpdate(requests.get(i))));
+        }
+        List<BatchItemResult> results = batch.update();
+        for (BatchItemResult result : results) {
+            if (result.getId() != null) {
+                DRIVER_CACHE.invalidate(result.getId());
+            }
+        }
+        return Responses.ok(gson.toJson(results));
+    }
+
+    private APIGatewayProxyResponseEvent updateTravel(APIGatewayProxyRequestEvent input) {
+        TravelUpdateRequest request = Json.read(input.getBody(), TravelUpdateRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (!isValidUpdateRequest(request)) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+
+        Document driver = DRIVERS_COLLECTION.findOneAndUpdate(
                 Filters.eq(FIELD_ID, request.getId()),
-                Updates.combine(updates)
+                buildTravelUpdate(request),
+                RETURN_UPDATED
         );
+        Phases.mark(Phases.DB);
+
+        if (driver == null) {
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_DRIVER_NOT_FOUND);
+        }
+
+        String body = serializeDriver(driver);
+        DRIVER_CACHE.put(request.getId(), body);
+        return Responses.ok(body);
+    }
 
-        if (updateResult.getMatchedCount() == 0) {
-            return buildErrorResponse(404, MESSAGE_DRIVER_NOT_FOUND);
+    private APIGatewayProxyResponseEvent buildNearestResponse(APIGatewayProxyRequestEvent input) {
+        Map<String, String> parameters = input.getQueryStringParameters();
+        if (parameters == null) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Double lat = parseDouble(parameters.get(QUERY_PARAM_LAT));
+        Double lng = parseDouble(parameters.get(QUERY_PARAM_LNG));
+        if (!isValidPosition(lat, lng)) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        int count = DEFAULT_NEAREST_COUNT;
+        if (parameters.containsKey(QUERY_PARAM_K)) {
+            Integer requested = parseInteger(parameters.get(QUERY_PARAM_K));
+            if (requested == null || requested < 1 || requested > MAX_NEAREST_COUNT) {
+                return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+            }
+            count = requested;
         }
+        return Responses.ok(serializeNearestDrivers(lat, lng, count));
+    }
 
-        Optional<Document> driver = findDriverById(request.getId());
-        if (driver.isEmpty()) {
-            return buildErrorResponse(404, MESSAGE_DRIVER_NOT_FOUND);
+    private static Double parseDouble(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
         }
+        try {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
 
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializeDriver(driver.get()));
-        return responseEvent;
+    private static Integer parseInteger(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
     }
 
     private APIGatewayProxyResponseEvent buildGetResponse(APIGatewayProxyRequestEvent input) {
@@ -214,49 +474,46 @@ public class Drivers implements RequestHandler<APIGatewayProxyRequestEvent, APIG
         if (parameters != null && parameters.containsKey(QUERY_PARAM_DRIVER_ID)) {
             String driverId = parameters.get(QUERY_PARAM_DRIVER_ID);
             if (driverId == null || driverId.isBlank()) {
-                return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+                return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+            }
+            Phases.mark(Phases.VALIDATE);
+            Optional<String> cached = DRIVER_CACHE.get(driverId);
+            if (cached.isPresent()) {
+                return Responses.ok(withRollup(parameters, cached.get(), driverId), CACHE_HIT_HEADERS);
             }
             Optional<Document> driver = findDriverById(driverId);
+            Phases.mark(Phases.DB);
             if (driver.isEmpty()) {
-                return buildErrorResponse(404, MESSAGE_DRIVER_NOT_FOUND);
+                return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_DRIVER_NOT_FOUND);
             }
-            APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-            responseEvent.setStatusCode(200);
-            responseEvent.setBody(serializeDriver(driver.get()));
-            return responseEvent;
-        }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializeDrivers());
-        return responseEvent;
+            String body = serializeDriver(driver.get());
+            DRIVER_CACHE.put(driverId, body);
+            return Responses.ok(withRollup(parameters, body, driverId), CACHE_MISS_HEADERS);
+        }
+        return buildListResponse(parameters);
+    }
+
+    /**
+     * With {@code include=rollup}, adds the driver's pre-aggregated totals to the profile. The
+     * cached profile is left as is; only the rollup is read on every request.
+     */
+    private String withRollup(Map<String, String> parameters, String body, String driverId) {
+        return Rollups.requested(parameters) ? ROLLUPS.embed(body, Rollups.TYPE_DRIVER, driverId) : body;
     }
 
-    private APIGatewayProxyResponseEvent buildErrorResponse(int statusCode, String message) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(statusCode);
-        responseEvent.setBody(message);
-        return responseEvent;
+    private APIGatewayProxyResponseEvent buildListResponse(Map<String, String> parameters) {
+        Optional<PageRequest> pageRequest = PageRequest.parse(parameters);
+        Optional<Bson> filter = LIST_FILTER.toFilter(parameters);
+        if (pageRequest.isEmpty() || filter.isEmpty()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        return pageRequest.get()
+                .fetch(DRIVERS_COLLECTION, filter.get(), LIST_WRITER)
+                .toResponse();
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
-        try {
-            String method = input.getHttpMethod();
-            if (HTTP_METHOD_GET.equals(method)) {
-                return buildGetResponse(input);
-            }
-            if (HTTP_METHOD_POST.equals(method)) {
-                return createDriver(input);
-            }
-            if (HTTP_METHOD_PUT.equals(method)) {
-                return updateTravel(input);
-            }
-            return buildErrorResponse(405, MESSAGE_METHOD_NOT_ALLOWED);
-        } catch (RuntimeException exception) {
-            if (context != null && context.getLogger() != null) {
-                context.getLogger().log(exception.getMessage());
-            }
-            return buildErrorResponse(500, MESSAGE_INTERNAL_ERROR);
-        }
+        return router.handle(input, context);
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package org.aygo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Persists the resume token of the last change-stream event whose side effects were written, so a
+ * restarted watcher continues exactly where the previous one stopped.
+ */
+public class ResumeTokenStore {
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_RESUME_TOKEN = "resumeToken";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private final MongoCollection<Document> checkpoints;
+    private final String streamName;
+
+    public ResumeTokenStore(MongoCollection<Document> checkpoints, String streamName) {
+        this.checkpoints = checkpoints;
+        this.streamName = streamName;
+    }
+
+    public Optional<BsonDocument> load() {
+        Document checkpoint = checkpoints.find(Filters.eq(FIELD_ID, streamName)).first();
+        if (checkpoint == null) {
+            return Optional.empty();
+        }
+        Document token = checkpoint.get(FIELD_RESUME_TOKEN, Document.class);
+        return Optional.ofNullable(token).map(Document::toBsonDocument);
+    }
+
+    public void save(BsonDocument resumeToken) {
+        checkpoints.replaceOne(
+                Filters.eq(FIELD_ID, streamName),
+                new Document(FIELD_ID, streamName)
+                        .append(FIELD_RESUME_TOKEN, resumeToken)
+                        .append(FIELD_UPDATED_AT, new Date()),
+                UPSERT
+        );
+    }
+}
@@ -0,0 +1,217 @@
+package org.aygo;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import org.aygo.core.MongoSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps users and drivers in step with ride assignments. Watches the rides collection through a
+ * change stream and, whenever a ride's {@code available} flag changes, marks its passenger and
+ * driver as traveling (claim) or clears whoever was traveling on it (release). A ride inserted
+ * with {@code available=false} is handled as a claim; rides inserted available are skipped, since
+ * nobody can be traveling on a ride that did not exist, and bulk inserts would otherwise flood the
+ * stream with no-op releases. Side effects are
+ * written in batches and the resume token of the last applied event is checkpointed after every
+ * batch, so a restart replays at most one batch; the updates are idempotent, which makes that
+ * replay harmless.
+ */
+public class RideLifecycle {
+    private static final String ENV_RIDES_COLLECTION = "MONGO_RIDES_COLLECTION";
+    private static final String ENV_USERS_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_DRIVERS_COLLECTION = "MONGO_DRIVERS_COLLECTION";
+    private static final String ENV_BATCH_SIZE = "LIFECYCLE_BATCH_SIZE";
+    private static final String ENV_MAX_AWAIT_MILLIS = "LIFECYCLE_MAX_AWAIT_MILLIS";
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long DEFAULT_MAX_AWAIT_MILLIS = 1_000;
+
+    private static final String CHECKPOINT_COLLECTION = "lifecycle_checkpoints";
+    private static final String STREAM_NAME = "rides";
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_AVAILABLE = "available";
+    private static final String FIELD_PASSENGER_ID = "passengerId";
+    private static final String FIELD_DRIVER = "driver";
+    private static final String FIELD_TRAVELING = "traveling";
+    private static final String FIELD_TRAVEL = "travel";
+    private static final String FIELD_BUSY = "busy";
+
+    private static final String FIELD_OPERATION_TYPE = "operationType";
+    private static final String FIELD_UPDATED_FIELDS = "updateDescription.updatedFields.";
+    private static final String FIELD_FULL_DOCUMENT = "fullDocument.";
+    private static final String OPERATION_INSERT = "insert";
+    private static final String OPERATION_UPDATE = "update";
+    private static final String OPERATION_REPLACE = "replace";
+
+    private static final List<Bson> PIPELINE = List.of(Aggregates.match(Filters.or(
+            Filters.eq(FIELD_OPERATION_TYPE, OPERATION_REPLACE),
+            Filters.and(
+                    Filters.eq(FIELD_OPERATION_TYPE, OPERATION_INSERT),
+                    Filters.eq(FIELD_FULL_DOCUMENT + FIELD_AVAILABLE, false)
+            ),
+            Filters.and(
+                    Filters.eq(FIELD_OPERATION_TYPE, OPERATION_UPDATE),
+                    Filters.exists(FIELD_UPDATED_FIELDS + FIELD_AVAILABLE)
+            )
+    )));
+
+    private static final List<IndexModel> TRAVEL_INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_TRAVEL))
+    );
+
+    private static final BulkWriteOptions ORDERED = new BulkWriteOptions().ordered(true);
+
+    private final MongoCollection<Document> rides;
+    private final MongoCollection<Document> users;
+    private final MongoCollection<Document> drivers;
+    private final ResumeTokenStore checkpoints;
+    private final int batchSize;
+    private final long maxAwaitMillis;
+    private volatile boolean running = true;
+
+    public RideLifecycle(MongoCollection<Document> rides, MongoCollection<Document> users,
+                         MongoCollection<Document> drivers, ResumeTokenStore checkpoints,
+                         int batchSize, long maxAwaitMillis) {
+        this.rides = rides;
+        this.users = users;
+        this.drivers = drivers;
+        this.checkpoints = checkpoints;
+        this.batchSize = batchSize;
+        this.maxAwaitMillis = maxAwaitMillis;
+    }
+
+    public static void main(String[] args) {
+        MongoClient client = MongoSupport.client();
+        MongoDatabase database = MongoSupport.database(client);
+        MongoCollection<Document> users = MongoSupport.collection(database, ENV_USERS_COLLECTION);
+        MongoCollection<Document> drivers = MongoSupport.collection(database, ENV_DRIVERS_COLLECTION);
+        MongoSupport.ensureIndexes(users, TRAVEL_INDEXES);
+        MongoSupport.ensureIndexes(drivers, TRAVEL_INDEXES);
+        RideLifecycle lifecycle = new RideLifecycle(
+                MongoSupport.collection(database, ENV_RIDES_COLLECTION),
+                users,
+                drivers,
+                new ResumeTokenStore(database.getCollection(CHECKPOINT_COLLECTION), STREAM_NAME),
+                MongoSupport.envInt(ENV_BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                MongoSupport.envLong(ENV_MAX_AWAIT_MILLIS, DEFAULT_MAX_AWAIT_MILLIS)
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(lifecycle::stop));
+        lifecycle.run();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Applies ride changes until {@link #stop()} is called. A batch is flushed when it reaches
+     * {@code batchSize} events or when the stream has been idle for {@code maxAwaitMillis}.
+     */
+    public void run() {
+        ChangeStreamIterable<Document> stream = rides.watch(PIPELINE)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .batchSize(batchSize)
+                .maxAwaitTime(maxAwaitMillis, TimeUnit.MILLISECONDS);
+        Optional<BsonDocument> resumeToken = checkpoints.load();
+        if (resumeToken.isPresent()) {
+            stream = stream.resumeAfter(resumeToken.get());
+        }
+        List<WriteModel<Document>> userWrites = new ArrayList<>();
+        List<WriteModel<Document>> driverWrites = new ArrayList<>();
+        BsonDocument lastToken = null;
+        int pending = 0;
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            while (running) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event != null) {
+                    collect(event.getFullDocument(), userWrites, driverWrites);
+                    lastToken = event.getResumeToken();
+                    pending++;
+                }
+                if (pending > 0 && (event == null || pending >= batchSize)) {
+                    flush(userWrites, driverWrites);
+                    checkpoints.save(lastToken);
+                    userWrites.clear();
+                    driverWrites.clear();
+                    pending = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps one ride to the user and driver writes it implies. The ride is read as it is now rather
+     * than as it was at event time, so a claim followed quickly by a release converges on the
+     * released state.
+     */
+    private void collect(Document ride, List<WriteModel<Document>> userWrites, List<WriteModel<Document>> driverWrites) {
+        if (ride == null) {
+            return;
+        }
+        String rideId = ride.getString(FIELD_ID);
+        String passengerId = ride.getString(FIELD_PASSENGER_ID);
+        String driverId = ride.getString(FIELD_DRIVER);
+        if (rideId == null) {
+            return;
+        }
+        if (ride.getBoolean(FIELD_AVAILABLE, true)) {
+            Bson onRide = Filters.eq(FIELD_TRAVEL, rideId);
+            userWrites.add(new UpdateManyModel<>(onRide, Updates.combine(
+                    Updates.set(FIELD_TRAVELING, false),
+                    Updates.set(FIELD_TRAVEL, null)
+            )));
+            driverWrites.add(new UpdateManyModel<>(onRide, Updates.combine(
+                    Updates.set(FIELD_TRAVELING, false),
+                    Updates.set(FIELD_TRAVEL, null),
+                    Updates.set(FIELD_BUSY, false)
+            )));
+            return;
+        }
+        if (passengerId != null) {
+            userWrites.add(new UpdateOneModel<>(Filters.eq(FIELD_ID, passengerId), Updates.combine(
+                    Updates.set(FIELD_TRAVELING, true),
+                    Updates.set(FIELD_TRAVEL, rideId)
+            )));
+        }
+        if (driverId != null) {
+            driverWrites.add(new UpdateOneModel<>(Filters.eq(FIELD_ID, driverId), Updates.combine(
+                    Updates.set(FIELD_TRAVELING, true),
+                    Updates.set(FIELD_TRAVEL, rideId),
+                    Updates.set(FIELD_BUSY, true)
+            )));
+        }
+    }
+
+    private void flush(List<WriteModel<Document>> userWrites, List<WriteModel<Document>> driverWrites) {
+        if (!userWrites.isEmpty()) {
+            users.bulkWrite(userWrites, ORDERED);
+        }
+        if (!driverWrites.isEmpty()) {
+            drivers.bulkWrite(driverWrites, ORDERED);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.aygo;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import org.bson.Document;
+
+import org.aygo.core.MongoSupport;
+import org.aygo.core.Rollups;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recomputes every user and driver rollup from the payments collection and compares it with the
+ * incrementally maintained one:
+ * <pre>
+ * java -cp lifecycle/target/lifecycle-1.0-SNAPSHOT.jar org.aygo.RollupReconciler [--repair]
+ * </pre>
+ * Reports rollups whose totals drifted, owners with payments but no rollup, and rollups whose owner
+ * has no payments left. Without {@code --repair} it only reports and exits with status 1 on any
+ * difference, so it can run as a scheduled check; with it, the differences are overwritten by the
+ * recomputed values. Only {@code total} and {@code paymentCount} are checked and rewritten:
+ * {@code tripCount} has no source to be recomputed from, so it is kept, and a rollup without
+ * payments is only deleted when it counts no trips either. Writes that land while it runs can make it report, or repair, a difference
+ * that the incremental update was about to fix; run it in a quiet period or run it twice.
+ */
+public class RollupReconciler {
+    private static final String ENV_PAYMENTS_COLLECTION = "MONGO_PAYMENTS_COLLECTION";
+    private static final String ARGUMENT_REPAIR = "--repair";
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_DRIVER_ID = "driverId";
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_GROUP = "_id";
+
+    private static final double TOLERANCE = 1e-6;
+    private static final int WRITE_CHUNK = 1_000;
+    private static final int SAMPLE_LIMIT = 20;
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> payments;
+    private final Rollups rollups;
+
+    public RollupReconciler(MongoCollection<Document> payments, Rollups rollups) {
+        this.payments = payments;
+        this.rollups = rollups;
+    }
+
+    public static void main(String[] args) {
+        boolean repair = args.length > 0 && ARGUMENT_REPAIR.equals(args[0]);
+        MongoClient client = MongoSupport.client();
+        MongoDatabase database = MongoSupport.database(client);
+        RollupReconciler reconciler = new RollupReconciler(
+                MongoSupport.collection(database, ENV_PAYMENTS_COLLECTION),
+                Rollups.forDatabase(database)
+        );
+        int differences = reconciler.reconcile(repair);
+        client.close();
+        System.exit(differences > 0 && !repair ? 1 : 0);
+    }
+
+    /**
+     * @return the number of rollups that differ from the payments
+     */
+    public int reconcile(boolean repair) {
+        Map<List<String>, Document> expected = new HashMap<>();
+        aggregate(Rollups.TYPE_USER, FIELD_USER_ID, expected);
+        aggregate(Rollups.TYPE_DRIVER, FIELD_DRIVER_ID, expected);
+
+        List<WriteModel<Document>> fixes = new ArrayList<>();
+        int drifted = 0;
+        int stale = 0;
+        for (Document actual : rollups.collection().find()) {
+            String type = actual.getString(Rollups.FIELD_TYPE);
+            String id = actual.getString(Rollups.FIELD_ID);
+            Document wanted = expected.remove(List.of(type, id));
+            if (wanted == null) {
+                if (total(actual) != 0 || paymentCount(actual) != 0) {
+                    stale++;
+                    sample(stale, "stale", type, id, actual, null);
+                }
+                if (tripCount(actual) == 0) {
+                    fixes.add(new DeleteOneModel<>(Rollups.key(type, id)));
+                } else {
+                    fixes.add(setPaymentTotals(type, id, 0, 0));
+                }
+            } else if (Math.abs(total(actual) - total(wanted)) > TOLERANCE || paymentCount(actual) != paymentCount(wanted)) {
+                drifted++;
+                sample(drifted, "drifted", type, id, actual, wanted);
+                fixes.add(setPaymentTotals(type, id, total(wanted), paymentCount(wanted)));
+            }
+        }
+        int missing = 0;
+        for (Document wanted : expected.values()) {
+            missing++;
+            sample(missing, "missing", wanted.getString(Rollups.FIELD_TYPE), wanted.getString(Rollups.FIELD_ID), null, wanted);
+            fixes.add(setPaymentTotals(
+                    wanted.getString(Rollups.FIELD_TYPE), wanted.getString(Rollups.FIELD_ID), total(wanted), paymentCount(wanted)));
+        }
+        System.out.println("Drifted " + drifted + ", missing " + missing + ", stale " + stale);
+
+        if (repair) {
+            for (int from = 0; from < fixes.size(); from += WRITE_CHUNK) {
+                rollups.collection().bulkWrite(fixes.subList(from, Math.min(from + WRITE_CHUNK, fixes.size())), UNORDERED);
+            }
+            System.out.println("Rewrote " + fixes.size() + " rollups");
+        }
+        return drifted + missing + stale;
+    }
+
+    private void aggregate(String type, String ownerField, Map<List<String>, Document> expected) {
+        AggregateIterable<Document> groups = payments.aggregate(List.of(
+                Aggregates.match(Filters.and(Filters.ne(ownerField, null), Filters.ne(ownerField, ""))),
+                Aggregates.group("$" + ownerField,
+                        Accumulators.sum(Rollups.FIELD_TOTAL, "$" + FIELD_AMOUNT),
+                        Accumulators.sum(Rollups.FIELD_PAYMENT_COUNT, 1L))
+        )).allowDiskUse(true);
+        for (Document group : groups) {
+            String id = group.getString(FIELD_GROUP);
+            expected.put(List.of(type, id), new Document(Rollups.FIELD_TYPE, type)
+                    .append(Rollups.FIELD_ID, id)
+                    .append(Rollups.FIELD_TOTAL, total(group))
+                    .append(Rollups.FIELD_PAYMENT_COUNT, paymentCount(group)));
+        }
+    }
+
+    private static WriteModel<Document> setPaymentTotals(String type, String id, double total, long paymentCount) {
+        return new UpdateOneModel<>(Rollups.key(type, id), Updates.combine(
+                Updates.set(Rollups.FIELD_TOTAL, total),
+                Updates.set(Rollups.FIELD_PAYMENT_COUNT, paymentCount)
+        ), UPSERT);
+    }
+
+    private static double total(Document rollup) {
+        Number total = rollup.get(Rollups.FIELD_TOTAL, Number.class);
+        return total == null ? 0 : total.doubleValue();
+    }
+
+    private static long paymentCount(Document rollup) {
+        Number paymentCount = rollup.get(Rollups.FIELD_PAYMENT_COUNT, Number.class);
+        return paymentCount == null ? 0 : paymentCount.longValue();
+    }
+
+    private static long tripCount(Document rollup) {
+        Number tripCount = rollup.get(Rollups.FIELD_TRIP_COUNT, Number.class);
+        return tripCount == null ? 0 : tripCount.longValue();
+    }
+
+    private static void sample(int count, String kind, String type, String id, Document actual, Document wanted) {
+        if (count > SAMPLE_LIMIT) {
+            return;
+        }
+        System.out.println("  " + kind + " " + type + " " + id
+                + " stored " + (actual == null ? "-" : total(actual) + "/" + paymentCount(actual))
+                + " expected " + (wanted == null ? "-" : total(wanted) + "/" + paymentCount(wanted)));
+    }
+}
@@ -0,0 +1,220 @@
+package org.aygo;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.aygo.core.MongoSupport;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the mongod configured through {@code MONGO_URI} and {@code MONGO_DB}, in
+ * {@code lifecycle_test_*} collections; skipped when {@code MONGO_URI} is not set or the server is
+ * not a replica set, since change streams need one (a single node started with
+ * {@code mongod --replSet rs0} and {@code rs.initiate()} is enough).
+ */
+class RideLifecycleTest {
+    private static final int BATCH_SIZE = 10;
+    private static final long MAX_AWAIT_MILLIS = 100;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static MongoCollection<Document> rides;
+    private static MongoCollection<Document> users;
+    private static MongoCollection<Document> drivers;
+    private static MongoCollection<Document> checkpointCollection;
+
+    private ResumeTokenStore checkpoints;
+    private BsonDocument startToken;
+    private String rideId;
+    private String passengerId;
+    private String driverId;
+    private RideLifecycle lifecycle;
+    private Thread worker;
+
+    @BeforeAll
+    static void connect() {
+        assumeTrue(System.getenv(MongoSupport.ENV_MONGO_URI) != null, "MONGO_URI is not set");
+        MongoDatabase database = MongoSupport.database(MongoSupport.client());
+        assumeTrue(isReplicaSet(database), "MONGO_URI is not a replica set");
+        rides = database.getCollection("lifecycle_test_rides");
+        users = database.getCollection("lifecycle_test_users");
+        drivers = database.getCollection("lifecycle_test_drivers");
+        checkpointCollection = database.getCollection("lifecycle_test_checkpoints");
+    }
+
+    private static boolean isReplicaSet(MongoDatabase database) {
+        try {
+            return database.runCommand(new Document("hello", 1)).containsKey("setName");
+        } catch (MongoException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Seeds a passenger, a driver and an available ride, and checkpoints the stream's current
+     * position so the worker starts right after the seeding whenever it is started.
+     */
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString();
+        rideId = "r_test_" + suffix;
+        passengerId = "u_test_" + suffix;
+        driverId = "d_test_" + suffix;
+        users.insertOne(new Document("id", passengerId).append("traveling", false).append("travel", null));
+        drivers.insertOne(new Document("id", driverId).append("traveling", false).append("travel", null).append("busy", false));
+        rides.insertOne(new Document("id", rideId).append("driver", driverId).append("available", true).append("passengerId", null));
+        checkpoints = new ResumeTokenStore(checkpointCollection, "rides_" + suffix);
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = rides.watch().cursor()) {
+            cursor.tryNext();
+            startToken = cursor.getResumeToken();
+        }
+        checkpoints.save(startToken);
+    }
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        stopWorker();
+        rides.deleteOne(Filters.eq("id", rideId));
+        users.deleteOne(Filters.eq("id", passengerId));
+        drivers.deleteOne(Filters.eq("id", driverId));
+        checkpointCollection.deleteMany(new Document());
+    }
+
+    private void startWorker() {
+        lifecycle = new RideLifecycle(rides, users, drivers, checkpoints, BATCH_SIZE, MAX_AWAIT_MILLIS);
+        worker = new Thread(lifecycle::run, "ride-lifecycle-test");
+        worker.start();
+    }
+
+    private void stopWorker() throws InterruptedException {
+        if (worker != null) {
+            lifecycle.stop();
+            worker.join(TIMEOUT_MILLIS);
+            worker = null;
+        }
+    }
+
+    private void claim() {
+        rides.updateOne(Filters.eq("id", rideId), Updates.combine(
+                Updates.set("available", false),
+                Updates.set("passengerId", passengerId)));
+    }
+
+    private void release() {
+        rides.updateOne(Filters.eq("id", rideId), Updates.combine(
+                Updates.set("available", true),
+                Updates.set("passengerId", null)));
+    }
+
+    private Document user() {
+        return users.find(Filters.eq("id", passengerId)).projection(new Document("_id", 0)).first();
+    }
+
+    private Document driver() {
+        return drivers.find(Filters.eq("id", driverId)).projection(new Document("_id", 0)).first();
+    }
+
+    private boolean isTraveling() {
+        Document user = user();
+        Document driver = driver();
+        return user.getBoolean("traveling") && rideId.equals(user.getString("travel"))
+                && driver.getBoolean("traveling") && driver.getBoolean("busy") && rideId.equals(driver.getString("travel"));
+    }
+
+    private boolean isCleared() {
+        Document user = user();
+        Document driver = driver();
+        return !user.getBoolean("traveling") && user.getString("travel") == null
+                && !driver.getBoolean("traveling") && !driver.getBoolean("busy") && driver.getString("travel") == null;
+    }
+
+    private static void await(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting until " + description);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void claimMarksPassengerAndDriverAndReleaseClearsThem() throws InterruptedException {
+        startWorker();
+
+        claim();
+        await(this::isTraveling, "the passenger and the driver are traveling");
+
+        release();
+        await(this::isCleared, "the passenger and the driver are cleared");
+    }
+
+    @Test
+    void insertedUnavailableRideMarksPassengerAndDriver() throws InterruptedException {
+        rides.deleteOne(Filters.eq("id", rideId));
+        startWorker();
+
+        rides.insertOne(new Document("id", rideId).append("driver", driverId).append("available", false).append("passengerId", passengerId));
+
+        await(this::isTraveling, "the passenger and the driver are traveling");
+    }
+
+    @Test
+    void restartResumesFromTheStoredToken() throws InterruptedException {
+        startWorker();
+        claim();
+        await(this::isTraveling, "the passenger and the driver are traveling");
+        stopWorker();
+        Optional<BsonDocument> stopped = checkpoints.load();
+        assertTrue(stopped.isPresent());
+        assertNotEquals(startToken, stopped.get());
+
+        release();
+        assertFalse(isCleared());
+        startWorker();
+
+        await(this::isCleared, "the restarted worker applied the release made while it was down");
+    }
+
+    @Test
+    void replayingABatchLeavesTheSameState() throws InterruptedException {
+        startWorker();
+        claim();
+        await(this::isTraveling, "the passenger and the driver are traveling");
+        stopWorker();
+        Document userAfterBatch = user();
+        Document driverAfterBatch = driver();
+        BsonDocument applied = checkpoints.load().orElseThrow();
+
+        checkpoints.save(startToken);
+        startWorker();
+        await(() -> checkpoints.load().map(token -> !token.equals(startToken)).orElse(false),
+                "the replayed batch is checkpointed again");
+        stopWorker();
+
+        assertEquals(applied, checkpoints.load().orElseThrow());
+        assertEquals(userAfterBatch, user());
+        assertEquals(driverAfterBatch, driver());
+    }
+}
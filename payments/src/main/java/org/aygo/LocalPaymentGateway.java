@@ -0,0 +1,35 @@
+package org.aygo;
+
+import java.util.UUID;
+
+/**
+ * In-process stand-in for the payment provider. Approves every charge with a random transaction
+ * id after an optional simulated round-trip delay. Only meant for tests and the local server; a
+ * deployed Lambda never falls back to it.
+ */
+public class LocalPaymentGateway implements PaymentGateway {
+    private static final String TRANSACTION_ID_PREFIX = "txn_";
+
+    private final long latencyMillis;
+
+    public LocalPaymentGateway() {
+        this(0);
+    }
+
+    public LocalPaymentGateway(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String charge(String paymentId, String userId, double amount) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while charging " + paymentId, exception);
+            }
+        }
+        return TRANSACTION_ID_PREFIX + UUID.randomUUID();
+    }
+}
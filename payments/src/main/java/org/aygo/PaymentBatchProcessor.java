@@ -0,0 +1,237 @@
+package org.aygo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import org.aygo.core.ETags;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Settles unprocessed payments in batches. Each run leases up to {@code batchSize} payments, charges
+ * them through the {@link PaymentGateway} with bounded parallelism, and writes the outcomes back in
+ * unordered {@code bulkWrite}s. The lease token is minted per run rather than per processor, so two
+ * runs never charge the same payment even when they overlap on one shared instance, as they do
+ * behind the {@code server} module. A lease that is not released (for instance because the
+ * container died) expires after {@code leaseMillis} and the payment becomes claimable again.
+ */
+public class PaymentBatchProcessor {
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_PROCESSED = "processed";
+    private static final String FIELD_TRANSACTION_ID = "transactionId";
+    private static final String FIELD_LEASE_OWNER = "leaseOwner";
+    private static final String FIELD_LEASE_EXPIRES_AT = "leaseExpiresAt";
+    private static final String FIELD_LAST_ERROR = "lastError";
+    private static final String FIELD_PROCESSED_AT = "processedAt";
+
+    private static final String LEASE_TOKEN_PREFIX = "lease_";
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> payments;
+    private final PaymentGateway gateway;
+    private final long leaseMillis;
+
+    public PaymentBatchProcessor(MongoCollection<Document> payments, PaymentGateway gateway, long leaseMillis) {
+        this.payments = payments;
+        this.gateway = gateway;
+        this.leaseMillis = leaseMillis;
+    }
+
+    @SuppressWarnings("unused")
+    public static class Report {
+        private final int claimed;
+        private final int processed;
+        private final int failed;
+        private final int parallelism;
+        private final long elapsedMillis;
+        private final double paymentsPerSecond;
+
+        Report(int claimed, int processed, int failed, int parallelism, long elapsedMillis) {
+            this.claimed = claimed;
+            this.processed = processed;
+            this.failed = failed;
+            this.parallelism = parallelism;
+            this.elapsedMillis = elapsedMillis;
+            this.paymentsPerSecond = elapsedMillis == 0 ? claimed : claimed * 1000.0 / elapsedMillis;
+        }
+    }
+
+    private static class Outcome {
+        private final String paymentId;
+        private final String transactionId;
+        private final String error;
+
+        Outcome(String paymentId, String transactionId, String error) {
+            this.paymentId = paymentId;
+            this.transactionId = transactionId;
+            this.error = error;
+        }
+    }
+
+    public Report processBatch(int batchSize, int parallelism) {
+        long startNanos = System.nanoTime();
+        String leaseToken = LEASE_TOKEN_PREFIX + UUID.randomUUID();
+        List<Document> claimed = claim(batchSize, leaseToken);
+        List<Outcome> outcomes = charge(claimed, parallelism);
+        int processed = writeBack(outcomes, leaseToken);
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        return new Report(claimed.size(), processed, claimed.size() - processed, parallelism, elapsedMillis);
+    }
+
+    private Bson claimable(Date now) {
+        return Filters.and(
+                Filters.eq(FIELD_PROCESSED, false),
+                Filters.or(
+                        Filters.eq(FIELD_LEASE_OWNER, null),
+                        Filters.lt(FIELD_LEASE_EXPIRES_AT, now)
+                )
+        );
+    }
+
+    /**
+     * Picks candidate ids, leases the ones still free with a single {@code updateMany} and reads
+     * back what this run actually won; candidates taken by another run in between are skipped.
+     */
+    private List<Document> claim(int batchSize, String leaseToken) {
+        Date now = new Date();
+        List<String> candidates = new ArrayList<>();
+        payments.find(claimable(now))
+                .projection(Projections.fields(Projections.include(FIELD_ID), Projections.excludeId()))
+                .sort(Sorts.ascending(FIELD_ID))
+                .limit(batchSize)
+                .forEach(document -> candidates.add(document.getString(FIELD_ID)));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        payments.updateMany(
+                Filters.and(Filters.in(FIELD_ID, candidates), claimable(now)),
+                Updates.combine(
+                        Updates.set(FIELD_LEASE_OWNER, leaseToken),
+                        Updates.set(FIELD_LEASE_EXPIRES_AT, new Date(now.getTime() + leaseMillis))
+                )
+        );
+        List<Document> claimed = new ArrayList<>();
+        payments.find(Filters.and(Filters.in(FIELD_ID, candidates), Filters.eq(FIELD_LEASE_OWNER, leaseToken)))
+                .into(claimed);
+        return claimed;
+    }
+
+    private List<Outcome> charge(List<Document> claimed, int parallelism) {
+        if (claimed.isEmpty()) {
+            return List.of();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, claimed.size()));
+        try {
+            List<Callable<Outcome>> tasks = new ArrayList<>(claimed.size());
+            for (Document payment : claimed) {
+                tasks.add(() -> chargeOne(payment));
+            }
+            List<Outcome> outcomes = new ArrayList<>(claimed.size());
+            for (Future<Outcome> future : executor.invokeAll(tasks)) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing payments", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Payment worker failed", exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Outcome chargeOne(Document payment) {
+        String paymentId = payment.getString(FIELD_ID);
+        try {
+            Number amount = payment.get(FIELD_AMOUNT, Number.class);
+            String transactionId = gateway.charge(
+                    paymentId, payment.getString(FIELD_USER_ID), amount == null ? 0 : amount.doubleValue());
+            return new Outcome(paymentId, transactionId, null);
+        } catch (RuntimeException exception) {
+            return new Outcome(paymentId, null, String.valueOf(exception.getMessage()));
+        }
+    }
+
+    /**
+     * Records the outcomes in unordered bulk writes, one for the charges and one for the failures.
+     * Writes are scoped to this run's lease and to unprocessed payments, so an outcome arriving after
+     * the lease was taken over is dropped instead of overwriting the new owner's result, and a settled
+     * payment is never written twice. Failed charges only release the lease
+     * and are retried by a later run.
+     *
+     * @return the payments actually marked as processed: charges whose write was dropped or failed
+     * are not counted, even though the provider accepted them
+     */
+    private int writeBack(List<Outcome> outcomes, String leaseToken) {
+        List<WriteModel<Document>> charges = new ArrayList<>(outcomes.size());
+        List<WriteModel<Document>> failures = new ArrayList<>();
+        Date processedAt = new Date();
+        for (Outcome outcome : outcomes) {
+            Bson leased = Filters.and(
+                    Filters.eq(FIELD_ID, outcome.paymentId),
+                    Filters.eq(FIELD_LEASE_OWNER, leaseToken),
+                    Filters.eq(FIELD_PROCESSED, false)
+            );
+            Bson releaseLease = Updates.combine(
+                    Updates.unset(FIELD_LEASE_OWNER),
+                    Updates.unset(FIELD_LEASE_EXPIRES_AT)
+            );
+            if (outcome.transactionId != null) {
+                charges.add(new UpdateOneModel<>(leased, Updates.combine(
+                        releaseLease,
+                        Updates.set(FIELD_PROCESSED, true),
+                        Updates.set(FIELD_TRANSACTION_ID, outcome.transactionId),
+                        Updates.set(FIELD_PROCESSED_AT, processedAt),
+                        Updates.unset(FIELD_LAST_ERROR),
+                        Updates.inc(ETags.FIELD_VERSION, 1L)
+                )));
+            } else {
+                failures.add(new UpdateOneModel<>(leased, Updates.combine(
+                        releaseLease,
+                        Updates.set(FIELD_LAST_ERROR, outcome.error)
+                )));
+            }
+        }
+        int processed = 0;
+        if (!charges.isEmpty()) {
+            try {
+                processed = payments.bulkWrite(charges, UNORDERED).getModifiedCount();
+            } catch (MongoBulkWriteException exception) {
+                processed = exception.getWriteResult().getModifiedCount();
+                System.err.println("Failed to record " + exception.getWriteErrors().size() + " charged payments");
+            }
+            if (processed < charges.size()) {
+                System.err.println((charges.size() - processed) + " charged payments were not marked as processed");
+            }
+        }
+        if (!failures.isEmpty()) {
+            try {
+                payments.bulkWrite(failures, UNORDERED);
+            } catch (MongoBulkWriteException exception) {
+                System.err.println("Failed to record " + exception.getWriteErrors().size() + " payment failures");
+            }
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,37 @@
+package org.aygo;
+
+import java.util.Optional;
+
+/**
+ * Charges a single payment with the external provider. Implementations must be thread-safe:
+ * {@link PaymentBatchProcessor} calls them from several worker threads at once.
+ */
+public interface PaymentGateway {
+    String ENV_PAYMENT_GATEWAY = "PAYMENT_GATEWAY";
+
+    /**
+     * @return the provider's transaction id
+     * @throws RuntimeException when the charge is declined or the provider fails
+     */
+    String charge(String paymentId, String userId, double amount);
+
+    /**
+     * Instantiates the class named by {@code PAYMENT_GATEWAY} through its public no-argument
+     * constructor.
+     *
+     * @return empty when the variable is not set
+     * @throws IllegalStateException when the class cannot be instantiated or is not a gateway
+     */
+    static Optional<PaymentGateway> fromEnvironment() {
+        String className = System.getenv(ENV_PAYMENT_GATEWAY);
+        if (className == null || className.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            Class<?> type = Class.forName(className.trim());
+            return Optional.of(type.asSubclass(PaymentGateway.class).getConstructor().newInstance());
+        } catch (ReflectiveOperationException | ClassCastException exception) {
+            throw new IllegalStateException("Invalid " + ENV_PAYMENT_GATEWAY + ": " + className, exception);
+        }
+    }
+}
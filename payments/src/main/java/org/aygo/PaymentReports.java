@@ -0,0 +1,94 @@
+package org.aygo;
+
+import com.google.gson.stream.JsonWriter;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import org.aygo.core.Json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Revenue reports computed by MongoDB aggregation pipelines, so only one row per group crosses the
+ * wire instead of every payment. Each report takes the payments created in {@code [from, to)} and
+ * sums {@code amount} per user, per ride or per processing state.
+ *
+ * <p>{@link Payments} declares, for each grouping, an index led by {@code createdAt} that also
+ * holds the group key and {@code amount}, so the {@code $match} is a range scan and the
+ * {@code $group} is answered from the index without fetching documents. Payments created before
+ * {@code createdAt} was recorded fall outside every range.
+ */
+public class PaymentReports {
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_RIDE_ID = "rideId";
+    private static final String FIELD_PROCESSED = "processed";
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_GROUP = "_id";
+    private static final String FIELD_TOTAL = "total";
+    private static final String FIELD_COUNT = "count";
+
+    private final MongoCollection<Document> payments;
+
+    public PaymentReports(MongoCollection<Document> payments) {
+        this.payments = payments;
+    }
+
+    /**
+     * @return a JSON array of {@code {"userId", "total", "count"}} rows ordered by user
+     */
+    public String byUser(Date from, Date to) {
+        return report(from, to, FIELD_USER_ID);
+    }
+
+    /**
+     * @return a JSON array of {@code {"rideId", "total", "count"}} rows ordered by ride
+     */
+    public String byRide(Date from, Date to) {
+        return report(from, to, FIELD_RIDE_ID);
+    }
+
+    /**
+     * @return a JSON array of {@code {"processed", "total", "count"}} rows, unprocessed first; a
+     * state with no payments in the range has no row
+     */
+    public String byStatus(Date from, Date to) {
+        return report(from, to, FIELD_PROCESSED);
+    }
+
+    private String report(Date from, Date to, String groupField) {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.and(Filters.gte(FIELD_CREATED_AT, from), Filters.lt(FIELD_CREATED_AT, to))),
+                Aggregates.group("$" + groupField,
+                        Accumulators.sum(FIELD_TOTAL, "$" + FIELD_AMOUNT),
+                        Accumulators.sum(FIELD_COUNT, 1)),
+                Aggregates.sort(Sorts.ascending(FIELD_GROUP))
+        );
+        List<Document> rows = payments.aggregate(pipeline).allowDiskUse(true).into(new ArrayList<>());
+        return Json.writeArray(rows, (writer, row) -> writeRow(writer, row, groupField));
+    }
+
+    private static void writeRow(JsonWriter writer, Document row, String groupField) throws IOException {
+        writer.beginObject();
+        Object group = row.get(FIELD_GROUP);
+        writer.name(groupField);
+        if (group instanceof Boolean) {
+            writer.value((Boolean) group);
+        } else {
+            writer.value(group == null ? null : group.toString());
+        }
+        writer.name(FIELD_TOTAL).value(row.get(FIELD_TOTAL, Number.class));
+        writer.name(FIELD_COUNT).value(row.get(FIELD_COUNT, Number.class));
+        writer.endObject();
+    }
+}
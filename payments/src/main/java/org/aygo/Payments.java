@@ -5,40 +5,95 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Updates;
-import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
-import com.mongodb.client.result.UpdateResult;
 
 import org.bson.Document;
-
+import org.bson.conversions.Bson;
+
+import org.aygo.core.BatchItemResult;
+import org.aygo.core.BatchWriter;
+import org.aygo.core.Checkpoints;
+import org.aygo.core.ETags;
+import org.aygo.core.HttpStatus;
+import org.aygo.core.IdempotencyStore;
+import org.aygo.core.Json;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.PageRequest;
+import org.aygo.core.Phases;
+import org.aygo.core.QueryFilter;
+import org.aygo.core.RawDocumentWriter;
+import org.aygo.core.Requests;
+import org.aygo.core.Responses;
+import org.aygo.core.Rollups;
+import org.aygo.core.Router;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
 
 public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
-    private static final String HTTP_METHOD_GET = "GET";
-    private static final String HTTP_METHOD_POST = "POST";
-    private static final String HTTP_METHOD_PUT = "PUT";
-    private static final String HTTP_METHOD_DELETE = "DELETE";
-    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
     private static final String MESSAGE_PAYMENT_NOT_FOUND = "Payment not found";
     private static final String MESSAGE_INVALID_BODY = "Invalid request body";
     private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
     private static final String MESSAGE_DELETED = "Deleted payment";
+    private static final String MESSAGE_INVALID_RANGE = "Invalid report range";
+    private static final String MESSAGE_GATEWAY_NOT_CONFIGURED = "Payment gateway not configured";
+    private static final String MESSAGE_KEY_REUSED = "Idempotency-Key was already used with a different request";
     private static final String QUERY_PARAM_PAYMENT_ID = "id";
+    private static final String QUERY_PARAM_PROCESSED = "processed";
+    private static final String QUERY_PARAM_USER_ID = "userId";
+    private static final String QUERY_PARAM_RIDE_ID = "rideId";
+    private static final String QUERY_PARAM_FROM = "from";
+    private static final String QUERY_PARAM_TO = "to";
+
+    private static final String PATH_BASE = "/payments";
+    private static final String PATH_BATCH = "/batch";
+    private static final String PATH_PROCESS = "/process";
+    private static final String PATH_REPORT_USERS = "/reports/users";
+    private static final String PATH_REPORT_RIDES = "/reports/rides";
+    private static final String PATH_REPORT_STATUS = "/reports/status";
 
     private static final String PAYMENT_ID_PREFIX = "pay_";
 
-    private static final String ENV_MONGO_URI = "MONGO_URI";
-    private static final String ENV_MONGO_DB = "MONGO_DB";
     private static final String ENV_MONGO_COLLECTION = "MONGO_PAYMENTS_COLLECTION";
+    private static final String ENV_RIDES_COLLECTION = "MONGO_RIDES_COLLECTION";
+    private static final String ENV_PAYMENT_LEASE_MILLIS = "PAYMENT_LEASE_MILLIS";
+
+    private static final int DEFAULT_PROCESS_BATCH_SIZE = 100;
+    private static final int MAX_PROCESS_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PROCESS_PARALLELISM = 8;
+    private static final int MAX_PROCESS_PARALLELISM = 64;
+    private static final long DEFAULT_PAYMENT_LEASE_MILLIS = 60_000;
 
     private static final String FIELD_ID = "id";
     private static final String FIELD_USER_ID = "userId";
@@ -46,35 +101,110 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
     private static final String FIELD_PROCESSED = "processed";
     private static final String FIELD_TRANSACTION_ID = "transactionId";
     private static final String FIELD_RIDE_ID = "rideId";
-
-    private static final MongoClient MONGO_CLIENT = createMongoClient();
-    private static final MongoDatabase MONGO_DATABASE = createMongoDatabase(MONGO_CLIENT);
-    private static final MongoCollection<Document> PAYMENTS_COLLECTION = createPaymentsCollection(MONGO_DATABASE);
-
-    private final Gson gson = new Gson();
-
-    private static MongoClient createMongoClient() {
-        String mongoUri = System.getenv(ENV_MONGO_URI);
-        if (mongoUri == null || mongoUri.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_URI);
-        }
-        return MongoClients.create(mongoUri);
+    private static final String FIELD_LEASE_OWNER = "leaseOwner";
+    private static final String FIELD_LEASE_EXPIRES_AT = "leaseExpiresAt";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_PROCESSED_AT = "processedAt";
+    private static final String FIELD_DRIVER_ID = "driverId";
+    private static final String FIELD_DRIVER = "driver";
+
+    private static final String PROPERTY_BATCH_SIZE = "batchSize";
+    private static final String PROPERTY_PARALLELISM = "parallelism";
+
+    private static final MongoClient MONGO_CLIENT = MongoSupport.client();
+    private static final MongoDatabase MONGO_DATABASE = MongoSupport.database(MONGO_CLIENT);
+    private static final MongoCollection<Document> PAYMENTS_COLLECTION = MongoSupport.collection(MONGO_DATABASE, ENV_MONGO_COLLECTION);
+    /**
+     * Only read to attribute payments to drivers; without {@code MONGO_RIDES_COLLECTION} payments
+     * keep working and are counted in their users' rollups only.
+     */
+    private static final Optional<MongoCollection<Document>> RIDES_COLLECTION =
+            MongoSupport.optionalCollection(MONGO_DATABASE, ENV_RIDES_COLLECTION);
+    private static final Rollups ROLLUPS = Rollups.forDatabase(MONGO_DATABASE);
+
+    private static final IndexOptions UNIQUE = new IndexOptions().unique(true);
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_ID), UNIQUE),
+            new IndexModel(Indexes.ascending(FIELD_USER_ID, FIELD_ID)),
+            new IndexModel(Indexes.ascending(FIELD_RIDE_ID, FIELD_ID)),
+            new IndexModel(Indexes.ascending(FIELD_PROCESSED, FIELD_ID)),
+            new IndexModel(Indexes.ascending(FIELD_PROCESSED, FIELD_LEASE_OWNER, FIELD_LEASE_EXPIRES_AT)),
+            new IndexModel(Indexes.ascending(FIELD_CREATED_AT, FIELD_USER_ID, FIELD_AMOUNT)),
+            new IndexModel(Indexes.ascending(FIELD_CREATED_AT, FIELD_RIDE_ID, FIELD_AMOUNT)),
+            new IndexModel(Indexes.ascending(FIELD_CREATED_AT, FIELD_PROCESSED, FIELD_AMOUNT))
+    );
+
+    static {
+        MongoSupport.ensureIndexes(PAYMENTS_COLLECTION, INDEXES);
     }
 
-    private static MongoDatabase createMongoDatabase(MongoClient client) {
-        String databaseName = System.getenv(ENV_MONGO_DB);
-        if (databaseName == null || databaseName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_DB);
-        }
-        return client.getDatabase(databaseName);
+    private static final QueryFilter LIST_FILTER = QueryFilter.builder()
+            .bool(QUERY_PARAM_PROCESSED, FIELD_PROCESSED)
+            .string(QUERY_PARAM_USER_ID, FIELD_USER_ID)
+            .string(QUERY_PARAM_RIDE_ID, FIELD_RIDE_ID)
+            .build();
+    private static final RawDocumentWriter LIST_WRITER = RawDocumentWriter.builder()
+            .string(FIELD_ID)
+            .string(FIELD_USER_ID)
+            .number(FIELD_AMOUNT)
+            .bool(FIELD_PROCESSED, false)
+            .string(FIELD_TRANSACTION_ID)
+            .string(FIELD_RIDE_ID)
+            .build();
+
+    private static final Bson VERSION_PROJECTION = Projections.fields(
+            Projections.include(ETags.FIELD_VERSION),
+            Projections.excludeId()
+    );
+    private static final Bson DRIVER_PROJECTION = Projections.fields(
+            Projections.include(FIELD_ID, FIELD_DRIVER),
+            Projections.excludeId()
+    );
+    private static final Bson ROLLUP_PROJECTION = Projections.fields(
+            Projections.include(FIELD_ID, FIELD_USER_ID, FIELD_AMOUNT, FIELD_RIDE_ID, FIELD_DRIVER_ID),
+            Projections.excludeId()
+    );
+
+    private static final IdempotencyStore IDEMPOTENCY_STORE = IdempotencyStore.forCollection(MONGO_DATABASE, PAYMENTS_COLLECTION);
+
+    private static final PaymentReports REPORTS = new PaymentReports(PAYMENTS_COLLECTION);
+
+    private static final FindOneAndUpdateOptions RETURN_PREVIOUS = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.BEFORE);
+    private static final FindOneAndUpdateOptions RETURN_PREVIOUS_CONTRIBUTION = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.BEFORE)
+            .projection(ROLLUP_PROJECTION);
+
+    private final Gson gson = Json.gson();
+    private final PaymentBatchProcessor batchProcessor;
+    private final Router router = Router.builder()
+            .get(PATH_REPORT_USERS, input -> buildReportResponse(input, REPORTS::byUser))
+            .get(PATH_REPORT_RIDES, input -> buildReportResponse(input, REPORTS::byRide))
+            .get(PATH_REPORT_STATUS, input -> buildReportResponse(input, REPORTS::byStatus))
+            .get(this::buildGetResponse)
+            .post(PATH_BATCH, this::createPayments)
+            .post(PATH_PROCESS, this::processPayments)
+            .post(input -> IDEMPOTENCY_STORE.execute(input, this::createPayment))
+            .put(PATH_BATCH, this::updatePayments)
+            .put(this::updatePayment)
+            .delete(this::deletePayment)
+            .build();
+
+    public Payments() {
+        this(PaymentGateway.fromEnvironment().orElse(null));
     }
 
-    private static MongoCollection<Document> createPaymentsCollection(MongoDatabase database) {
-        String collectionName = System.getenv(ENV_MONGO_COLLECTION);
-        if (collectionName == null || collectionName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_COLLECTION);
-        }
-        return database.getCollection(collectionName);
+    /**
+     * @param gateway charges the payments settled by {@code POST /payments/process}; without one
+     * that route answers 503 instead of marking payments as processed
+     */
+    public Payments(PaymentGateway gateway) {
+        this.batchProcessor = gateway == null ? null : new PaymentBatchProcessor(
+                PAYMENTS_COLLECTION,
+                gateway,
+                MongoSupport.envLong(ENV_PAYMENT_LEASE_MILLIS, DEFAULT_PAYMENT_LEASE_MILLIS)
+        );
+        Checkpoints.prime(this, PATH_BASE);
     }
 
     private static class PaymentCreationRequest {
@@ -82,6 +212,21 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
         private double amount;
         private String rideId;
 
+        static PaymentCreationRequest read(JsonReader reader) throws IOException {
+            PaymentCreationRequest request = new PaymentCreationRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_USER_ID -> request.userId = Json.nextString(reader);
+                    case FIELD_AMOUNT -> request.amount = Json.nextDouble(reader, request.amount);
+                    case FIELD_RIDE_ID -> request.rideId = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getUserId() {
             return userId;
         }
@@ -102,6 +247,23 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
         private String rideId;
         private Double amount;
 
+        static PaymentUpdateRequest read(JsonReader reader) throws IOException {
+            PaymentUpdateRequest request = new PaymentUpdateRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_PROCESSED -> request.processed = Json.nextBoolean(reader, request.processed);
+                    case FIELD_TRANSACTION_ID -> request.transactionId = Json.nextString(reader);
+                    case FIELD_RIDE_ID -> request.rideId = Json.nextString(reader);
+                    case FIELD_AMOUNT -> request.amount = Json.nextDouble(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getId() {
             return id;
         }
@@ -123,119 +285,212 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
         }
     }
 
-    @SuppressWarnings("unused")
-    private static class PaymentSummary {
-        private final String id;
-        private final String userId;
-        private final double amount;
-        private final boolean processed;
-        private final String transactionId;
-        private final String rideId;
+    private static class ProcessPaymentsRequest {
+        private Integer batchSize;
+        private Integer parallelism;
+
+        static ProcessPaymentsRequest read(JsonReader reader) throws IOException {
+            ProcessPaymentsRequest request = new ProcessPaymentsRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case PROPERTY_BATCH_SIZE -> request.batchSize = Json.nextInteger(reader);
+                    case PROPERTY_PARALLELISM -> request.parallelism = Json.nextInteger(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
+        Integer getBatchSize() {
+            return batchSize;
+        }
 
-        PaymentSummary(Document source) {
-            this.id = source.getString(FIELD_ID);
-            this.userId = source.getString(FIELD_USER_ID);
-            this.amount = source.getDouble(FIELD_AMOUNT);
-            this.processed = source.getBoolean(FIELD_PROCESSED, false);
-            this.transactionId = source.getString(FIELD_TRANSACTION_ID);
-            this.rideId = source.getString(FIELD_RIDE_ID);
+        Integer getParallelism() {
+            return parallelism;
         }
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
-        try {
-            String method = input.getHttpMethod();
-            if (HTTP_METHOD_GET.equals(method)) {
-                return buildGetResponse(input);
-            }
-            if (HTTP_METHOD_POST.equals(method)) {
-                return createPayment(input);
-            }
-            if (HTTP_METHOD_PUT.equals(method)) {
-                return updatePayment(input);
-            }
-            if (HTTP_METHOD_DELETE.equals(method)) {
-                return deletePayment(input);
-            }
-            return buildErrorResponse(405, MESSAGE_METHOD_NOT_ALLOWED);
-        } catch (RuntimeException exception) {
-            if (context != null && context.getLogger() != null) {
-                context.getLogger().log(exception.getMessage());
-            }
-            return buildErrorResponse(500, MESSAGE_INTERNAL_ERROR);
-        }
+        return router.handle(input, context);
     }
 
     private APIGatewayProxyResponseEvent createPayment(APIGatewayProxyRequestEvent input) {
-        PaymentCreationRequest request = gson.fromJson(input.getBody(), PaymentCreationRequest.class);
+        PaymentCreationRequest request = Json.read(input.getBody(), PaymentCreationRequest::read);
+        Phases.mark(Phases.PARSE);
         if (!isValidCreationRequest(request)) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
-        String paymentId = PAYMENT_ID_PREFIX + java.util.UUID.randomUUID();
-        Document document = new Document()
-                .append(FIELD_ID, paymentId)
-                .append(FIELD_USER_ID, request.getUserId())
-                .append(FIELD_AMOUNT, request.getAmount())
-                .append(FIELD_PROCESSED, Boolean.FALSE)
-                .append(FIELD_TRANSACTION_ID, null)
-                .append(FIELD_RIDE_ID, request.getRideId());
-        InsertOneResult result = PAYMENTS_COLLECTION.insertOne(document);
+        Phases.mark(Phases.VALIDATE);
+        String idempotencyKey = IdempotencyStore.keyOf(input);
+        Document document = buildPaymentDocument(request, findDriver(request.getRideId()), paymentId(idempotencyKey));
+        InsertOneResult result;
+        try {
+            result = PAYMENTS_COLLECTION.insertOne(document);
+        } catch (MongoWriteException exception) {
+            if (idempotencyKey == null || exception.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw exception;
+            }
+            APIGatewayProxyResponseEvent existing = buildExistingPaymentResponse(document);
+            Phases.mark(Phases.DB);
+            return existing;
+        }
+        Phases.mark(Phases.DB);
         if (!result.wasAcknowledged()) {
-            return buildErrorResponse(500, MESSAGE_INTERNAL_ERROR);
+            return Responses.error(HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(201);
-        responseEvent.setBody(serializePayment(document));
-        return responseEvent;
+        recordPayment(ROLLUPS.changes(), document, 1).apply();
+        return Responses.created(serializePayment(document), ETags.headersFor(document));
     }
 
     private APIGatewayProxyResponseEvent updatePayment(APIGatewayProxyRequestEvent input) {
-        PaymentUpdateRequest request = gson.fromJson(input.getBody(), PaymentUpdateRequest.class);
+        PaymentUpdateRequest request = Json.read(input.getBody(), PaymentUpdateRequest::read);
+        Phases.mark(Phases.PARSE);
         if (!isValidUpdateRequest(request)) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
-        ArrayList<org.bson.conversions.Bson> updates = new ArrayList<>();
-        updates.add(Updates.set(FIELD_PROCESSED, request.isProcessed()));
-        updates.add(Updates.set(FIELD_TRANSACTION_ID, request.getTransactionId()));
-        updates.add(Updates.set(FIELD_RIDE_ID, request.getRideId()));
-        if (request.getAmount() != null) {
-            updates.add(Updates.set(FIELD_AMOUNT, request.getAmount()));
-        }
-        UpdateResult updateResult = PAYMENTS_COLLECTION.updateOne(
+        Phases.mark(Phases.VALIDATE);
+        Date now = new Date();
+        Document previous = PAYMENTS_COLLECTION.findOneAndUpdate(
                 Filters.eq(FIELD_ID, request.getId()),
-                Updates.combine(updates)
+                buildPaymentUpdate(request, now),
+                RETURN_PREVIOUS
         );
-        if (updateResult.getMatchedCount() == 0) {
-            return buildErrorResponse(404, MESSAGE_PAYMENT_NOT_FOUND);
+        if (previous == null) {
+            Phases.mark(Phases.DB);
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_PAYMENT_NOT_FOUND);
         }
-        Optional<Document> payment = findPaymentById(request.getId());
-        if (payment.isEmpty()) {
-            return buildErrorResponse(404, MESSAGE_PAYMENT_NOT_FOUND);
+        String driverId = previous.getString(FIELD_DRIVER_ID);
+        if (movesRide(previous, request)) {
+            driverId = findDriver(request.getRideId());
+            reattributePayment(request.getId(), request.getRideId(), driverId);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializePayment(payment.get()));
-        return responseEvent;
+        Phases.mark(Phases.DB);
+        Document payment = applyPaymentUpdate(previous, request, driverId, now);
+        recordPayment(recordPayment(ROLLUPS.changes(), previous, -1), payment, 1).apply();
+        return Responses.ok(serializePayment(payment), ETags.headersFor(payment));
+    }
+
+    private APIGatewayProxyResponseEvent createPayments(APIGatewayProxyRequestEvent input) {
+        List<PaymentCreationRequest> requests = Json.readArray(input.getBody(), PaymentCreationRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Set<String> rideIds = new HashSet<>();
+        for (PaymentCreationRequest request : requests) {
+            if (isValidCreationRequest(request)) {
+                rideIds.add(request.getRideId());
+            }
+        }
+        Map<String, String> drivers = findDrivers(rideIds);
+        BatchWriter batch = new BatchWriter(PAYMENTS_COLLECTION, requests.size());
+        Document[] documents = new Document[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            if (!isValidCreationRequest(requests.get(i))) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            documents[i] = buildPaymentDocument(requests.get(i), drivers.get(requests.get(i).getRideId()), paymentId(null));
+            batch.add(i, documents[i].getString(FIELD_ID), new InsertOneModel<>(documents[i]));
+        }
+        List<BatchItemResult> results = batch.insert();
+        Rollups.Changes changes = ROLLUPS.changes();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getStatus() == HttpStatus.CREATED) {
+                recordPayment(changes, documents[i], 1);
+            }
+        }
+        changes.apply();
+        return Responses.ok(gson.toJson(results));
+    }
+
+    /**
+     * Updates each payment with its own {@code findOneAndUpdate}, as {@link #updatePayment} does, so
+     * the amount and owner taken off the rollups are the ones this write replaced; reading them in a
+     * separate query before a {@code bulkWrite} let concurrent updates skew the rollups. The drivers
+     * of all requested rides are read once up front for the payments that move.
+     */
+    private APIGatewayProxyResponseEvent updatePayments(APIGatewayProxyRequestEvent input) {
+        List<PaymentUpdateRequest> requests = Json.readArray(input.getBody(), PaymentUpdateRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Set<String> rideIds = new HashSet<>();
+        for (PaymentUpdateRequest request : requests) {
+            if (isValidUpdateRequest(request)) {
+                rideIds.add(request.getRideId());
+            }
+        }
+        Map<String, String> drivers = findDrivers(rideIds);
+        Date now = new Date();
+        BatchWriter batch = new BatchWriter(PAYMENTS_COLLECTION, requests.size());
+        Rollups.Changes changes = ROLLUPS.changes();
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentUpdateRequest request = requests.get(i);
+            if (!isValidUpdateRequest(request)) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            try {
+                Document previous = PAYMENTS_COLLECTION.findOneAndUpdate(
+                        Filters.eq(FIELD_ID, request.getId()),
+                        buildPaymentUpdate(request, now),
+                        RETURN_PREVIOUS_CONTRIBUTION
+                );
+                batch.updated(i, request.getId(), previous != null);
+                if (previous == null) {
+                    continue;
+                }
+                String driverId = previous.getString(FIELD_DRIVER_ID);
+                if (movesRide(previous, request)) {
+                    driverId = drivers.get(request.getRideId());
+                    reattributePayment(request.getId(), request.getRideId(), driverId);
+                }
+                recordPayment(changes, previous, -1);
+                recordPayment(changes, applyPaymentUpdate(previous, request, driverId, now), 1);
+            } catch (MongoException exception) {
+                batch.failed(i, request.getId(), exception.getMessage());
+            }
+        }
+        changes.apply();
+        return Responses.ok(gson.toJson(batch.results()));
+    }
+
+    private APIGatewayProxyResponseEvent processPayments(APIGatewayProxyRequestEvent input) {
+        if (batchProcessor == null) {
+            return Responses.error(HttpStatus.SERVICE_UNAVAILABLE, MESSAGE_GATEWAY_NOT_CONFIGURED);
+        }
+        ProcessPaymentsRequest request = input.getBody() == null || input.getBody().isBlank()
+                ? new ProcessPaymentsRequest()
+                : Json.read(input.getBody(), ProcessPaymentsRequest::read);
+        if (request == null) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        int batchSize = request.getBatchSize() == null ? DEFAULT_PROCESS_BATCH_SIZE : request.getBatchSize();
+        int parallelism = request.getParallelism() == null ? DEFAULT_PROCESS_PARALLELISM : request.getParallelism();
+        if (batchSize < 1 || batchSize > MAX_PROCESS_BATCH_SIZE || parallelism < 1 || parallelism > MAX_PROCESS_PARALLELISM) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        return Responses.ok(gson.toJson(batchProcessor.processBatch(batchSize, parallelism)));
     }
 
     private APIGatewayProxyResponseEvent deletePayment(APIGatewayProxyRequestEvent input) {
         Map<String, String> parameters = input.getQueryStringParameters();
         if (parameters == null || !parameters.containsKey(QUERY_PARAM_PAYMENT_ID)) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
         String paymentId = parameters.get(QUERY_PARAM_PAYMENT_ID);
         if (paymentId == null || paymentId.isBlank()) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
-        DeleteResult deleteResult = PAYMENTS_COLLECTION.deleteOne(Filters.eq(FIELD_ID, paymentId));
-        if (deleteResult.getDeletedCount() == 0) {
-            return buildErrorResponse(404, MESSAGE_PAYMENT_NOT_FOUND);
+        Document deleted = PAYMENTS_COLLECTION.findOneAndDelete(Filters.eq(FIELD_ID, paymentId));
+        if (deleted == null) {
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_PAYMENT_NOT_FOUND);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(MESSAGE_DELETED);
-        return responseEvent;
+        recordPayment(ROLLUPS.changes(), deleted, -1).apply();
+        return Responses.ok(MESSAGE_DELETED);
     }
 
     private APIGatewayProxyResponseEvent buildGetResponse(APIGatewayProxyRequestEvent input) {
@@ -243,21 +498,69 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
         if (parameters != null && parameters.containsKey(QUERY_PARAM_PAYMENT_ID)) {
             String paymentId = parameters.get(QUERY_PARAM_PAYMENT_ID);
             if (paymentId == null || paymentId.isBlank()) {
-                return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+                return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+            }
+            Phases.mark(Phases.VALIDATE);
+            String ifNoneMatch = Requests.header(input, ETags.HEADER_IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                Optional<Long> version = findPaymentVersion(paymentId);
+                if (version.isEmpty()) {
+                    return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_PAYMENT_NOT_FOUND);
+                }
+                String etag = ETags.of(version.get());
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    return Responses.notModified(ETags.headers(etag));
+                }
             }
             Optional<Document> payment = findPaymentById(paymentId);
+            Phases.mark(Phases.DB);
             if (payment.isEmpty()) {
-                return buildErrorResponse(404, MESSAGE_PAYMENT_NOT_FOUND);
+                return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_PAYMENT_NOT_FOUND);
             }
-            APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-            responseEvent.setStatusCode(200);
-            responseEvent.setBody(serializePayment(payment.get()));
-            return responseEvent;
+            return Responses.ok(serializePayment(payment.get()), ETags.headersFor(payment.get()));
+        }
+        return buildListResponse(parameters);
+    }
+
+    /**
+     * Runs a report over payments created in {@code [from, to)}, both required ISO-8601 instants,
+     * so the pipeline always starts with a range scan on {@code createdAt}.
+     */
+    private APIGatewayProxyResponseEvent buildReportResponse(APIGatewayProxyRequestEvent input,
+                                                             BiFunction<Date, Date, String> report) {
+        Map<String, String> parameters = input.getQueryStringParameters();
+        Optional<Date> from = parseInstant(parameters, QUERY_PARAM_FROM);
+        Optional<Date> to = parseInstant(parameters, QUERY_PARAM_TO);
+        if (from.isEmpty() || to.isEmpty() || !from.get().before(to.get())) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_RANGE);
+        }
+        Phases.mark(Phases.VALIDATE);
+        String body = report.apply(from.get(), to.get());
+        Phases.mark(Phases.DB);
+        return Responses.ok(body);
+    }
+
+    private static Optional<Date> parseInstant(Map<String, String> parameters, String name) {
+        String value = parameters == null ? null : parameters.get(name);
+        if (value == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Date.from(Instant.parse(value.trim())));
+        } catch (DateTimeParseException exception) {
+            return Optional.empty();
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializePayments());
-        return responseEvent;
+    }
+
+    private APIGatewayProxyResponseEvent buildListResponse(Map<String, String> parameters) {
+        Optional<PageRequest> pageRequest = PageRequest.parse(parameters);
+        Optional<Bson> filter = LIST_FILTER.toFilter(parameters);
+        if (pageRequest.isEmpty() || filter.isEmpty()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        return pageRequest.get()
+                .fetch(PAYMENTS_COLLECTION, filter.get(), LIST_WRITER)
+                .toResponse();
     }
 
     private Optional<Document> findPaymentById(String paymentId) {
@@ -265,6 +568,138 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
         return Optional.ofNullable(document);
     }
 
+    /**
+     * Resolves a conditional GET from the version field alone, without loading the document.
+     */
+    private Optional<Long> findPaymentVersion(String paymentId) {
+        Document document = PAYMENTS_COLLECTION.find(Filters.eq(FIELD_ID, paymentId))
+                .projection(VERSION_PROJECTION)
+                .first();
+        return Optional.ofNullable(document).map(ETags::versionOf);
+    }
+
+    /**
+     * Resolves the driver of the ride a payment belongs to, which the payment keeps as
+     * {@code driverId} so its driver's rollup can be adjusted on later updates and deletes without
+     * reading the ride again.
+     */
+    private String findDriver(String rideId) {
+        return RIDES_COLLECTION
+                .map(rides -> rides.find(Filters.eq(FIELD_ID, rideId)).projection(DRIVER_PROJECTION).first())
+                .map(ride -> ride.getString(FIELD_DRIVER))
+                .orElse(null);
+    }
+
+    private Map<String, String> findDrivers(Collection<String> rideIds) {
+        Map<String, String> drivers = new HashMap<>();
+        if (RIDES_COLLECTION.isPresent() && !rideIds.isEmpty()) {
+            RIDES_COLLECTION.get().find(Filters.in(FIELD_ID, rideIds))
+                    .projection(DRIVER_PROJECTION)
+                    .forEach(ride -> drivers.put(ride.getString(FIELD_ID), ride.getString(FIELD_DRIVER)));
+        }
+        return drivers;
+    }
+
+    /**
+     * A payment keeps its {@code driverId} while it stays on the same ride, so the driver is only
+     * looked up again when an update moves it to another ride.
+     */
+    private static boolean movesRide(Document previous, PaymentUpdateRequest request) {
+        return previous != null && !request.getRideId().equals(previous.getString(FIELD_RIDE_ID));
+    }
+
+    /**
+     * Stores the driver of the payment's new ride, unless a concurrent update has moved the payment
+     * again in between.
+     */
+    private void reattributePayment(String paymentId, String rideId, String driverId) {
+        PAYMENTS_COLLECTION.updateOne(
+                Filters.and(Filters.eq(FIELD_ID, paymentId), Filters.eq(FIELD_RIDE_ID, rideId)),
+                Updates.set(FIELD_DRIVER_ID, driverId));
+    }
+
+    /**
+     * Adds (sign {@code 1}) or removes (sign {@code -1}) a payment's amount and trip from its user's
+     * and its driver's rollups.
+     */
+    private static Rollups.Changes recordPayment(Rollups.Changes changes, Document payment, int sign) {
+        Number amount = payment.get(FIELD_AMOUNT, Number.class);
+        return changes
+                .add(Rollups.TYPE_USER, payment.getString(FIELD_USER_ID), amount, sign)
+                .add(Rollups.TYPE_DRIVER, payment.getString(FIELD_DRIVER_ID), amount, sign);
+    }
+
+    /**
+     * A payment created under an {@code Idempotency-Key} gets an id derived from the key, so a
+     * second run of the same request after an {@link IdempotencyStore} takeover hits the unique
+     * index instead of charging twice.
+     */
+    private static String paymentId(String idempotencyKey) {
+        UUID id = idempotencyKey == null
+                ? UUID.randomUUID()
+                : UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+        return PAYMENT_ID_PREFIX + id;
+    }
+
+    /**
+     * Answers a re-run of a keyed creation with the payment the first run inserted, as a 201 like
+     * the original response. A payment of another user means the key was reused after its entry
+     * expired.
+     */
+    private APIGatewayProxyResponseEvent buildExistingPaymentResponse(Document attempted) {
+        Document existing = PAYMENTS_COLLECTION.find(Filters.eq(FIELD_ID, attempted.getString(FIELD_ID))).first();
+        if (existing == null || !attempted.getString(FIELD_USER_ID).equals(existing.getString(FIELD_USER_ID))) {
+            return Responses.error(HttpStatus.UNPROCESSABLE_ENTITY, MESSAGE_KEY_REUSED);
+        }
+        return Responses.created(serializePayment(existing), ETags.headersFor(existing));
+    }
+
+    private Document buildPaymentDocument(PaymentCreationRequest request, String driverId, String paymentId) {
+        return new Document()
+                .append(FIELD_ID, paymentId)
+                .append(FIELD_USER_ID, request.getUserId())
+                .append(FIELD_AMOUNT, request.getAmount())
+                .append(FIELD_PROCESSED, Boolean.FALSE)
+                .append(FIELD_TRANSACTION_ID, null)
+                .append(FIELD_RIDE_ID, request.getRideId())
+                .append(FIELD_DRIVER_ID, driverId)
+                .append(FIELD_CREATED_AT, new Date())
+                .append(FIELD_PROCESSED_AT, null)
+                .append(ETags.FIELD_VERSION, 1L);
+    }
+
+    private Bson buildPaymentUpdate(PaymentUpdateRequest request, Date now) {
+        ArrayList<Bson> updates = new ArrayList<>();
+        updates.add(Updates.set(FIELD_PROCESSED, request.isProcessed()));
+        updates.add(Updates.set(FIELD_PROCESSED_AT, request.isProcessed() ? now : null));
+        updates.add(Updates.set(FIELD_TRANSACTION_ID, request.getTransactionId()));
+        updates.add(Updates.set(FIELD_RIDE_ID, request.getRideId()));
+        if (request.getAmount() != null) {
+            updates.add(Updates.set(FIELD_AMOUNT, request.getAmount()));
+        }
+        updates.add(Updates.inc(ETags.FIELD_VERSION, 1L));
+        return Updates.combine(updates);
+    }
+
+    /**
+     * Applies {@link #buildPaymentUpdate} and the resolved {@code driverId} to the document as it
+     * was before the write, so one round trip yields both the previous rollup contribution and the
+     * updated payment.
+     */
+    private Document applyPaymentUpdate(Document previous, PaymentUpdateRequest request, String driverId, Date now) {
+        Document payment = new Document(previous);
+        payment.put(FIELD_PROCESSED, request.isProcessed());
+        payment.put(FIELD_PROCESSED_AT, request.isProcessed() ? now : null);
+        payment.put(FIELD_TRANSACTION_ID, request.getTransactionId());
+        payment.put(FIELD_RIDE_ID, request.getRideId());
+        payment.put(FIELD_DRIVER_ID, driverId);
+        if (request.getAmount() != null) {
+            payment.put(FIELD_AMOUNT, request.getAmount());
+        }
+        payment.put(ETags.FIELD_VERSION, ETags.versionOf(previous) + 1);
+        return payment;
+    }
+
     private boolean isValidCreationRequest(PaymentCreationRequest request) {
         if (request == null) {
             return false;
@@ -289,19 +724,17 @@ public class Payments implements RequestHandler<APIGatewayProxyRequestEvent, API
     }
 
     private String serializePayment(Document document) {
-        return gson.toJson(new PaymentSummary(document));
-    }
-
-    private String serializePayments() {
-        ArrayList<PaymentSummary> summaries = new ArrayList<>();
-        PAYMENTS_COLLECTION.find().map(PaymentSummary::new).into(summaries);
-        return gson.toJson(summaries);
+        return Json.write(document, this::writePayment);
     }
 
-    private APIGatewayProxyResponseEvent buildErrorResponse(int statusCode, String message) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(statusCode);
-        responseEvent.setBody(message);
-        return responseEvent;
+    private void writePayment(JsonWriter writer, Document document) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_USER_ID).value(document.getString(FIELD_USER_ID));
+        writer.name(FIELD_AMOUNT).value(document.getDouble(FIELD_AMOUNT));
+        writer.name(FIELD_PROCESSED).value(document.getBoolean(FIELD_PROCESSED, false));
+        writer.name(FIELD_TRANSACTION_ID).value(document.getString(FIELD_TRANSACTION_ID));
+        writer.name(FIELD_RIDE_ID).value(document.getString(FIELD_RIDE_ID));
+        writer.endObject();
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package org.aygo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+
+import org.bson.Document;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.aygo.core.MongoSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the mongod configured through {@code MONGO_URI} and {@code MONGO_DB}, in a
+ * {@code payment_batch_test} collection; skipped when {@code MONGO_URI} is not set.
+ */
+class PaymentBatchProcessorTest {
+    private static final int PAYMENTS = 200;
+    private static final int RUNS = 8;
+    private static final long LEASE_MILLIS = 60_000;
+
+    private static MongoCollection<Document> payments;
+
+    private final Map<String, AtomicInteger> charges = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    static void connect() {
+        assumeTrue(System.getenv(MongoSupport.ENV_MONGO_URI) != null, "MONGO_URI is not set");
+        payments = MongoSupport.database(MongoSupport.client()).getCollection("payment_batch_test");
+    }
+
+    @BeforeEach
+    void seedPayments() {
+        payments.deleteMany(new Document());
+        List<Document> documents = new ArrayList<>(PAYMENTS);
+        for (int i = 0; i < PAYMENTS; i++) {
+            documents.add(new Document("id", String.format("pay_test_%04d", i))
+                    .append("userId", "u_test")
+                    .append("amount", 10)
+                    .append("processed", false)
+                    .append("version", 1L));
+        }
+        payments.insertMany(documents);
+    }
+
+    @AfterEach
+    void removePayments() {
+        payments.deleteMany(new Document());
+    }
+
+    private String charge(String paymentId, String userId, double amount) {
+        charges.computeIfAbsent(paymentId, key -> new AtomicInteger()).incrementAndGet();
+        return "tx_" + paymentId;
+    }
+
+    @Test
+    void overlappingRunsOnOneProcessorChargeEachPaymentOnce() throws Exception {
+        PaymentBatchProcessor processor = new PaymentBatchProcessor(payments, this::charge, LEASE_MILLIS);
+        ExecutorService executor = Executors.newFixedThreadPool(RUNS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentBatchProcessor.Report>> reports = new ArrayList<>();
+        try {
+            for (int i = 0; i < RUNS; i++) {
+                reports.add(executor.submit(() -> {
+                    start.await();
+                    return processor.processBatch(PAYMENTS, 4);
+                }));
+            }
+            start.countDown();
+            for (Future<PaymentBatchProcessor.Report> report : reports) {
+                report.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(PAYMENTS, charges.size());
+        charges.forEach((paymentId, count) -> assertEquals(1, count.get(), paymentId));
+        assertEquals(PAYMENTS, payments.countDocuments(Filters.eq("processed", true)));
+        assertEquals(PAYMENTS, payments.countDocuments(Filters.eq("version", 2L)));
+    }
+}
@@ -0,0 +1,98 @@
+package org.aygo;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.JsonParser;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
+import org.bson.Document;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.aygo.core.HttpStatus;
+import org.aygo.core.IdempotencyStore;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.Router;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the mongod configured through the same environment variables as the Lambda
+ * ({@code MONGO_URI}, {@code MONGO_DB} and {@code MONGO_PAYMENTS_COLLECTION}); skipped when
+ * {@code MONGO_URI} or {@code MONGO_PAYMENTS_COLLECTION} is not set.
+ */
+class PaymentsIdempotencyTest {
+    private static final String PATH = "/payments";
+
+    private static Payments handler;
+    private static MongoCollection<Document> payments;
+    private static MongoCollection<Document> keys;
+
+    private String userId;
+    private String key;
+
+    @BeforeAll
+    static void connect() {
+        assumeTrue(System.getenv("MONGO_URI") != null, "MONGO_URI is not set");
+        assumeTrue(System.getenv("MONGO_PAYMENTS_COLLECTION") != null, "MONGO_PAYMENTS_COLLECTION is not set");
+        handler = new Payments();
+        MongoDatabase database = MongoSupport.database(MongoSupport.client());
+        payments = MongoSupport.collection(database, "MONGO_PAYMENTS_COLLECTION");
+        keys = database.getCollection(payments.getNamespace().getCollectionName() + "_idempotency");
+    }
+
+    @BeforeEach
+    void newKey() {
+        userId = "u_test_" + UUID.randomUUID();
+        key = "key_" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void removePayments() {
+        payments.deleteMany(Filters.eq("userId", userId));
+        keys.deleteOne(Filters.eq("key", key));
+    }
+
+    private APIGatewayProxyResponseEvent create() {
+        return handler.handleRequest(new APIGatewayProxyRequestEvent()
+                .withHttpMethod(Router.HTTP_METHOD_POST)
+                .withPath(PATH)
+                .withHeaders(Map.of(IdempotencyStore.HEADER_IDEMPOTENCY_KEY, key))
+                .withBody("{\"userId\":\"" + userId + "\",\"amount\":12.5,\"rideId\":\"r_test\"}"), null);
+    }
+
+    private static String idOf(APIGatewayProxyResponseEvent response) {
+        return JsonParser.parseString(response.getBody()).getAsJsonObject().get("id").getAsString();
+    }
+
+    @Test
+    void rerunAfterATakeoverAnswersWithTheFirstPayment() {
+        APIGatewayProxyResponseEvent first = create();
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+
+        // The first run's response never got stored and its reservation lapsed.
+        keys.updateOne(Filters.eq("key", key), Updates.combine(
+                Updates.unset("statusCode"),
+                Updates.unset("body"),
+                Updates.unset("headers"),
+                Updates.set("pendingUntil", new Date(System.currentTimeMillis() - 1))));
+
+        APIGatewayProxyResponseEvent second = create();
+
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals(idOf(first), idOf(second));
+        assertEquals(1, payments.countDocuments(Filters.eq("userId", userId)));
+    }
+}
@@ -4,85 +4,165 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.UpdateResult;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
-import java.util.ArrayList;
+import org.aygo.core.Checkpoints;
+import org.aygo.core.ETags;
+import org.aygo.core.HttpStatus;
+import org.aygo.core.Json;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.PageRequest;
+import org.aygo.core.Phases;
+import org.aygo.core.QueryFilter;
+import org.aygo.core.RawDocumentWriter;
+import org.aygo.core.Requests;
+import org.aygo.core.Responses;
+import org.aygo.core.Rollups;
+import org.aygo.core.Router;
+
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public class Rides implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
-    private static final String HTTP_METHOD_GET = "GET";
-    private static final String HTTP_METHOD_POST = "POST";
-    private static final String HTTP_METHOD_PUT = "PUT";
-    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
     private static final String MESSAGE_RIDE_NOT_FOUND = "Ride not found";
+    private static final String MESSAGE_RIDE_UNAVAILABLE = "Ride not available";
     private static final String MESSAGE_INVALID_BODY = "Invalid request body";
-    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
+    private static final String MESSAGE_PASSENGER_UNAVAILABLE = "Passenger not found or already traveling";
+    private static final String MESSAGE_DRIVER_UNAVAILABLE = "Driver not found or busy";
+    private static final String MESSAGE_BOOKING_NOT_CONFIGURED = "Booking is not configured";
 
     private static final String QUERY_PARAM_RIDE_ID = "id";
+    private static final String QUERY_PARAM_AVAILABLE = "available";
+    private static final String QUERY_PARAM_DRIVER = "driver";
+
+    private static final String PATH_BASE = "/rides";
+    private static final String PATH_CLAIM = "/claim";
+    private static final String PATH_RELEASE = "/release";
+    private static final String PATH_BOOK = "/book";
 
     private static final String RIDE_ID_PREFIX = "r_";
 
-    private static final String ENV_MONGO_URI = "MONGO_URI";
-    private static final String ENV_MONGO_DB = "MONGO_DB";
     private static final String ENV_MONGO_COLLECTION = "MONGO_COLLECTION";
+    private static final String ENV_RIDES_COLLECTION = "MONGO_RIDES_COLLECTION";
+    private static final String ENV_USERS_COLLECTION = "MONGO_USERS_COLLECTION";
+    private static final String ENV_DRIVERS_COLLECTION = "MONGO_DRIVERS_COLLECTION";
+    private static final String ENV_BOOKING_MAX_ATTEMPTS = "BOOKING_MAX_ATTEMPTS";
+
+    private static final int DEFAULT_BOOKING_MAX_ATTEMPTS = 3;
 
     private static final String FIELD_ID = "id";
     private static final String FIELD_DRIVER = "driver";
     private static final String FIELD_AVAILABLE = "available";
     private static final String FIELD_PASSENGER_ID = "passengerId";
+    private static final String FIELD_TRAVELING = "traveling";
+    private static final String FIELD_TRAVEL = "travel";
+    private static final String FIELD_BUSY = "busy";
 
-    private static final int STATUS_CODE_OK = 200;
-    private static final int STATUS_CODE_CREATED = 201;
-    private static final int STATUS_CODE_BAD_REQUEST = 400;
-    private static final int STATUS_CODE_NOT_FOUND = 404;
-    private static final int STATUS_CODE_METHOD_NOT_ALLOWED = 405;
-    private static final int STATUS_CODE_INTERNAL_ERROR = 500;
+    private static final MongoClient MONGO_CLIENT = MongoSupport.client();
+    private static final MongoDatabase MONGO_DATABASE = MongoSupport.database(MONGO_CLIENT);
+    private static final MongoCollection<Document> RIDES_COLLECTION = MongoSupport.collection(MONGO_DATABASE, ENV_RIDES_COLLECTION, ENV_MONGO_COLLECTION);
+    /**
+     * Only written by {@code POST /rides/book}; without them the other routes keep working and
+     * booking answers 503.
+     */
+    private static final Optional<MongoCollection<Document>> USERS_COLLECTION =
+            MongoSupport.optionalCollection(MONGO_DATABASE, ENV_USERS_COLLECTION);
+    private static final Optional<MongoCollection<Document>> DRIVERS_COLLECTION =
+            MongoSupport.optionalCollection(MONGO_DATABASE, ENV_DRIVERS_COLLECTION);
+    private static final Rollups ROLLUPS = Rollups.forDatabase(MONGO_DATABASE);
 
-    private static final MongoClient MONGO_CLIENT = createMongoClient();
-    private static final MongoDatabase MONGO_DATABASE = createMongoDatabase(MONGO_CLIENT);
-    private static final MongoCollection<Document> RIDES_COLLECTION = createRidesCollection(MONGO_DATABASE);
+    private static final IndexOptions UNIQUE = new IndexOptions().unique(true);
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_ID), UNIQUE),
+            new IndexModel(Indexes.ascending(FIELD_DRIVER, FIELD_ID)),
+            new IndexModel(Indexes.ascending(FIELD_AVAILABLE, FIELD_ID))
+    );
 
-    private final Gson gson = new Gson();
-
-    private static MongoClient createMongoClient() {
-        String mongoUri = System.getenv(ENV_MONGO_URI);
-        if (mongoUri == null || mongoUri.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_URI);
-        }
-        return MongoClients.create(mongoUri);
+    static {
+        MongoSupport.ensureIndexes(RIDES_COLLECTION, INDEXES);
     }
 
-    private static MongoDatabase createMongoDatabase(MongoClient client) {
-        String databaseName = System.getenv(ENV_MONGO_DB);
-        if (databaseName == null || databaseName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_DB);
-        }
-        return client.getDatabase(databaseName);
-    }
+    private static final QueryFilter LIST_FILTER = QueryFilter.builder()
+            .bool(QUERY_PARAM_AVAILABLE, FIELD_AVAILABLE)
+            .string(QUERY_PARAM_DRIVER, FIELD_DRIVER)
+            .build();
+    private static final RawDocumentWriter LIST_WRITER = RawDocumentWriter.builder()
+            .string(FIELD_ID)
+            .string(FIELD_DRIVER)
+            .bool(FIELD_AVAILABLE, true)
+            .string(FIELD_PASSENGER_ID)
+            .build();
 
-    private static MongoCollection<Document> createRidesCollection(MongoDatabase database) {
-        String collectionName = System.getenv(ENV_MONGO_COLLECTION);
-        if (collectionName == null || collectionName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_COLLECTION);
-        }
-        return database.getCollection(collectionName);
+    private static final Bson VERSION_PROJECTION = Projections.fields(
+            Projections.include(ETags.FIELD_VERSION),
+            Projections.excludeId()
+    );
+
+    private static final FindOneAndUpdateOptions RETURN_UPDATED = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.AFTER);
+    private static final FindOneAndUpdateOptions RETURN_PREVIOUS = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.BEFORE);
+
+    private static final TransactionOptions BOOKING_TRANSACTION = TransactionOptions.builder()
+            .readPreference(ReadPreference.primary())
+            .writeConcern(WriteConcern.MAJORITY)
+            .build();
+    private static final int BOOKING_MAX_ATTEMPTS = MongoSupport.envInt(ENV_BOOKING_MAX_ATTEMPTS, DEFAULT_BOOKING_MAX_ATTEMPTS);
+
+    private final Router router = Router.builder()
+            .get(this::buildGetResponse)
+            .post(this::createRide)
+            .put(PATH_CLAIM, this::claimRide)
+            .put(PATH_RELEASE, this::releaseRide)
+            .post(PATH_BOOK, this::bookRide)
+            .put(this::updateRide)
+            .build();
+
+    public Rides() {
+        Checkpoints.prime(this, PATH_BASE);
     }
 
     private static class CreateRideRequest {
         private String driver;
 
+        static CreateRideRequest read(JsonReader reader) throws IOException {
+            CreateRideRequest request = new CreateRideRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_DRIVER -> request.driver = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getDriver() {
             return driver;
         }
@@ -93,6 +173,21 @@ public class Rides implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         private boolean available;
         private String passengerId;
 
+        static RideUpdateRequest read(JsonReader reader) throws IOException {
+            RideUpdateRequest request = new RideUpdateRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_AVAILABLE -> request.available = Json.nextBoolean(reader, request.available);
+                    case FIELD_PASSENGER_ID -> request.passengerId = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getId() {
             return id;
         }
@@ -106,29 +201,44 @@ public class Rides implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         }
     }
 
-    @SuppressWarnings("unused")
-    private static class RideSummary {
-        private final String id;
-        private final String driver;
-        private final boolean available;
-        private final String passengerId;
+    private static class RideClaimRequest {
+        private String id;
+        private String passengerId;
+
+        static RideClaimRequest read(JsonReader reader) throws IOException {
+            RideClaimRequest request = new RideClaimRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_PASSENGER_ID -> request.passengerId = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
+        String getId() {
+            return id;
+        }
 
-        RideSummary(Document source) {
-            this.id = source.getString(FIELD_ID);
-            this.driver = source.getString(FIELD_DRIVER);
-            this.available = source.getBoolean(FIELD_AVAILABLE, true);
-            this.passengerId = source.getString(FIELD_PASSENGER_ID);
+        String getPassengerId() {
+            return passengerId;
         }
     }
 
-    private String serializeRides() {
-        ArrayList<RideSummary> summaries = new ArrayList<>();
-        RIDES_COLLECTION.find().map(RideSummary::new).into(summaries);
-        return gson.toJson(summaries);
+    private void writeRide(JsonWriter writer, Document document) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_DRIVER).value(document.getString(FIELD_DRIVER));
+        writer.name(FIELD_AVAILABLE).value(document.getBoolean(FIELD_AVAILABLE, true));
+        writer.name(FIELD_PASSENGER_ID).value(document.getString(FIELD_PASSENGER_ID));
+        writer.endObject();
     }
 
     private String serializeRide(Document document) {
-        return gson.toJson(new RideSummary(document));
+        return Json.write(document, this::writeRide);
     }
 
     private Optional<Document> findRideById(String rideId) {
@@ -139,47 +249,264 @@ public class Rides implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         return Optional.ofNullable(document);
     }
 
+    /**
+     * Resolves a conditional GET from the version field alone, without loading the document.
+     */
+    private Optional<Long> findRideVersion(String rideId) {
+        Document document = RIDES_COLLECTION.find(Filters.eq(FIELD_ID, rideId))
+                .projection(VERSION_PROJECTION)
+                .first();
+        return Optional.ofNullable(document).map(ETags::versionOf);
+    }
+
     private APIGatewayProxyResponseEvent createRide(APIGatewayProxyRequestEvent input) {
-        CreateRideRequest request = gson.fromJson(input.getBody(), CreateRideRequest.class);
+        CreateRideRequest request = Json.read(input.getBody(), CreateRideRequest::read);
+        Phases.mark(Phases.PARSE);
         if (request == null || request.getDriver() == null || request.getDriver().isBlank()) {
-            return buildErrorResponse(STATUS_CODE_BAD_REQUEST, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
+        Phases.mark(Phases.VALIDATE);
         String rideId = RIDE_ID_PREFIX + UUID.randomUUID();
         Document document = new Document()
                 .append(FIELD_ID, rideId)
                 .append(FIELD_DRIVER, request.getDriver())
                 .append(FIELD_AVAILABLE, true)
-                .append(FIELD_PASSENGER_ID, null);
+                .append(FIELD_PASSENGER_ID, null)
+                .append(ETags.FIELD_VERSION, 1L);
         RIDES_COLLECTION.insertOne(document);
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(STATUS_CODE_CREATED);
-        responseEvent.setBody(serializeRide(document));
-        return responseEvent;
+        Phases.mark(Phases.DB);
+        return Responses.created(serializeRide(document), ETags.headersFor(document));
     }
 
+    /**
+     * Overwrites a ride's state. The previous document is returned so that a trip is counted only
+     * when the update gives the ride a new passenger, not when it rewrites the current one.
+     */
     private APIGatewayProxyResponseEvent updateRide(APIGatewayProxyRequestEvent input) {
-        RideUpdateRequest request = gson.fromJson(input.getBody(), RideUpdateRequest.class);
+        RideUpdateRequest request = Json.read(input.getBody(), RideUpdateRequest::read);
+        Phases.mark(Phases.PARSE);
         if (request == null || request.getId() == null || request.getId().isBlank()) {
-            return buildErrorResponse(STATUS_CODE_BAD_REQUEST, MESSAGE_INVALID_BODY);
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
-        UpdateResult updateResult = RIDES_COLLECTION.updateOne(
+        Phases.mark(Phases.VALIDATE);
+        Document previous = RIDES_COLLECTION.findOneAndUpdate(
                 Filters.eq(FIELD_ID, request.getId()),
                 Updates.combine(
                         Updates.set(FIELD_AVAILABLE, request.isAvailable()),
-                        Updates.set(FIELD_PASSENGER_ID, request.getPassengerId())
-                )
+                        Updates.set(FIELD_PASSENGER_ID, request.getPassengerId()),
+                        Updates.inc(ETags.FIELD_VERSION, 1L)
+                ),
+                RETURN_PREVIOUS
         );
-        if (updateResult.getMatchedCount() == 0) {
-            return buildErrorResponse(STATUS_CODE_NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
+        Phases.mark(Phases.DB);
+        if (previous == null) {
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
         }
-        Optional<Document> ride = findRideById(request.getId());
-        if (ride.isEmpty()) {
-            return buildErrorResponse(STATUS_CODE_NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
+        Document ride = new Document(previous);
+        ride.put(FIELD_AVAILABLE, request.isAvailable());
+        ride.put(FIELD_PASSENGER_ID, request.getPassengerId());
+        ride.put(ETags.FIELD_VERSION, ETags.versionOf(previous) + 1);
+        if (isAssigned(ride) && (!isAssigned(previous)
+                || !ride.getString(FIELD_PASSENGER_ID).equals(previous.getString(FIELD_PASSENGER_ID)))) {
+            recordTrip(ride);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(STATUS_CODE_OK);
-        responseEvent.setBody(serializeRide(ride.get()));
-        return responseEvent;
+        return Responses.ok(serializeRide(ride), ETags.headersFor(ride));
+    }
+
+    private static boolean isAssigned(Document ride) {
+        return !ride.getBoolean(FIELD_AVAILABLE, true) && ride.getString(FIELD_PASSENGER_ID) != null;
+    }
+
+    /**
+     * Counts a trip for the ride's passenger and driver once a write has assigned it. Releasing a
+     * ride does not take the trip back: the count is of assignments, not of completed trips.
+     */
+    private static void recordTrip(Document ride) {
+        ROLLUPS.changes()
+                .trip(Rollups.TYPE_USER, ride.getString(FIELD_PASSENGER_ID))
+                .trip(Rollups.TYPE_DRIVER, ride.getString(FIELD_DRIVER))
+                .apply();
+    }
+
+    /**
+     * Books an available ride for a passenger in a single conditional write. Concurrent claims
+     * on the same ride race on the {@code available=true} filter, so exactly one of them wins.
+     */
+    private APIGatewayProxyResponseEvent claimRide(APIGatewayProxyRequestEvent input) {
+        RideClaimRequest request = Json.read(input.getBody(), RideClaimRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (request == null || request.getId() == null || request.getId().isBlank()
+                || request.getPassengerId() == null || request.getPassengerId().isBlank()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+        Document ride = RIDES_COLLECTION.findOneAndUpdate(
+                Filters.and(
+                        Filters.eq(FIELD_ID, request.getId()),
+                        Filters.eq(FIELD_AVAILABLE, true)
+                ),
+                Updates.combine(
+                        Updates.set(FIELD_AVAILABLE, false),
+                        Updates.set(FIELD_PASSENGER_ID, request.getPassengerId()),
+                        Updates.inc(ETags.FIELD_VERSION, 1L)
+                ),
+                RETURN_UPDATED
+        );
+        Phases.mark(Phases.DB);
+        if (ride == null) {
+            return buildConditionalWriteFailure(request.getId());
+        }
+        recordTrip(ride);
+        return Responses.ok(serializeRide(ride), ETags.headersFor(ride));
+    }
+
+    /**
+     * Makes a claimed ride available again. When a passenger id is given, only that passenger's
+     * claim is released.
+     */
+    private APIGatewayProxyResponseEvent releaseRide(APIGatewayProxyRequestEvent input) {
+        RideClaimRequest request = Json.read(input.getBody(), RideClaimRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (request == null || request.getId() == null || request.getId().isBlank()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+        Bson filter = Filters.and(
+                Filters.eq(FIELD_ID, request.getId()),
+                Filters.eq(FIELD_AVAILABLE, false)
+        );
+        if (request.getPassengerId() != null && !request.getPassengerId().isBlank()) {
+            filter = Filters.and(filter, Filters.eq(FIELD_PASSENGER_ID, request.getPassengerId()));
+        }
+        Document ride = RIDES_COLLECTION.findOneAndUpdate(
+                filter,
+                Updates.combine(
+                        Updates.set(FIELD_AVAILABLE, true),
+                        Updates.set(FIELD_PASSENGER_ID, null),
+                        Updates.inc(ETags.FIELD_VERSION, 1L)
+                ),
+                RETURN_UPDATED
+        );
+        Phases.mark(Phases.DB);
+        if (ride == null) {
+            return buildConditionalWriteFailure(request.getId());
+        }
+        return Responses.ok(serializeRide(ride), ETags.headersFor(ride));
+    }
+
+    /**
+     * Books a ride for a passenger in one transaction: the ride is taken, the passenger is marked as
+     * traveling on it and the ride's driver as busy, or nothing changes. Transient transaction errors
+     * (write conflicts with a concurrent booking, elections) restart the whole transaction, and an
+     * unknown commit result retries the commit, both up to {@code BOOKING_MAX_ATTEMPTS} times.
+     */
+    private APIGatewayProxyResponseEvent bookRide(APIGatewayProxyRequestEvent input) {
+        if (USERS_COLLECTION.isEmpty() || DRIVERS_COLLECTION.isEmpty()) {
+            return Responses.error(HttpStatus.SERVICE_UNAVAILABLE, MESSAGE_BOOKING_NOT_CONFIGURED);
+        }
+        RideClaimRequest request = Json.read(input.getBody(), RideClaimRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (request == null || request.getId() == null || request.getId().isBlank()
+                || request.getPassengerId() == null || request.getPassengerId().isBlank()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+        MongoCollection<Document> users = USERS_COLLECTION.get();
+        MongoCollection<Document> drivers = DRIVERS_COLLECTION.get();
+        for (int attempt = 1; ; attempt++) {
+            try (ClientSession session = MONGO_CLIENT.startSession()) {
+                session.startTransaction(BOOKING_TRANSACTION);
+                Document ride = RIDES_COLLECTION.findOneAndUpdate(
+                        session,
+                        Filters.and(
+                                Filters.eq(FIELD_ID, request.getId()),
+                                Filters.eq(FIELD_AVAILABLE, true)
+                        ),
+                        Updates.combine(
+                                Updates.set(FIELD_AVAILABLE, false),
+                                Updates.set(FIELD_PASSENGER_ID, request.getPassengerId()),
+                                Updates.inc(ETags.FIELD_VERSION, 1L)
+                        ),
+                        RETURN_UPDATED
+                );
+                if (ride == null) {
+                    session.abortTransaction();
+                    APIGatewayProxyResponseEvent failure = buildConditionalWriteFailure(request.getId());
+                    Phases.mark(Phases.DB);
+                    return failure;
+                }
+                UpdateResult passenger = users.updateOne(
+                        session,
+                        Filters.and(
+                                Filters.eq(FIELD_ID, request.getPassengerId()),
+                                Filters.ne(FIELD_TRAVELING, true)
+                        ),
+                        Updates.combine(
+                                Updates.set(FIELD_TRAVELING, true),
+                                Updates.set(FIELD_TRAVEL, request.getId())
+                        )
+                );
+                if (passenger.getMatchedCount() == 0) {
+                    session.abortTransaction();
+                    Phases.mark(Phases.DB);
+                    return Responses.error(HttpStatus.CONFLICT, MESSAGE_PASSENGER_UNAVAILABLE);
+                }
+                UpdateResult driver = drivers.updateOne(
+                        session,
+                        Filters.and(
+                                Filters.eq(FIELD_ID, ride.getString(FIELD_DRIVER)),
+                                Filters.ne(FIELD_BUSY, true)
+                        ),
+                        Updates.combine(
+                                Updates.set(FIELD_TRAVELING, true),
+                                Updates.set(FIELD_TRAVEL, request.getId()),
+                                Updates.set(FIELD_BUSY, true)
+                        )
+                );
+                if (driver.getMatchedCount() == 0) {
+                    session.abortTransaction();
+                    Phases.mark(Phases.DB);
+                    return Responses.error(HttpStatus.CONFLICT, MESSAGE_DRIVER_UNAVAILABLE);
+                }
+                commitWithRetry(session);
+                recordTrip(ride);
+                Phases.mark(Phases.DB);
+                return Responses.ok(serializeRide(ride), ETags.headersFor(ride));
+            } catch (MongoException exception) {
+                if (!exception.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                        || attempt >= BOOKING_MAX_ATTEMPTS) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    private void commitWithRetry(ClientSession session) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                session.commitTransaction();
+                return;
+            } catch (MongoException exception) {
+                if (!exception.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)
+                        || attempt >= BOOKING_MAX_ATTEMPTS) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells a missing ride apart from one whose state no longer matches. Only runs on the
+     * failure path, so successful claims and releases stay at one round trip.
+     */
+    private APIGatewayProxyResponseEvent buildConditionalWriteFailure(String rideId) {
+        Document existing = RIDES_COLLECTION.find(Filters.eq(FIELD_ID, rideId))
+                .projection(Projections.include(FIELD_ID))
+                .first();
+        if (existing == null) {
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
+        }
+        return Responses.error(HttpStatus.CONFLICT, MESSAGE_RIDE_UNAVAILABLE);
     }
 
     private APIGatewayProxyResponseEvent buildGetResponse(APIGatewayProxyRequestEvent input) {
@@ -187,49 +514,43 @@ public class Rides implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         if (parameters != null && parameters.containsKey(QUERY_PARAM_RIDE_ID)) {
             String rideId = parameters.get(QUERY_PARAM_RIDE_ID);
             if (rideId == null || rideId.isBlank()) {
-                return buildErrorResponse(STATUS_CODE_BAD_REQUEST, MESSAGE_INVALID_BODY);
+                return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+            }
+            Phases.mark(Phases.VALIDATE);
+            String ifNoneMatch = Requests.header(input, ETags.HEADER_IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                Optional<Long> version = findRideVersion(rideId);
+                if (version.isEmpty()) {
+                    return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
+                }
+                String etag = ETags.of(version.get());
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    return Responses.notModified(ETags.headers(etag));
+                }
             }
             Optional<Document> ride = findRideById(rideId);
+            Phases.mark(Phases.DB);
             if (ride.isEmpty()) {
-                return buildErrorResponse(STATUS_CODE_NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
+                return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_RIDE_NOT_FOUND);
             }
-            APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-            responseEvent.setStatusCode(STATUS_CODE_OK);
-            responseEvent.setBody(serializeRide(ride.get()));
-            return responseEvent;
+            return Responses.ok(serializeRide(ride.get()), ETags.headersFor(ride.get()));
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(STATUS_CODE_OK);
-        responseEvent.setBody(serializeRides());
-        return responseEvent;
+        return buildListResponse(parameters);
     }
 
-    private APIGatewayProxyResponseEvent buildErrorResponse(int statusCode, String message) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(statusCode);
-        responseEvent.setBody(message);
-        return responseEvent;
+    private APIGatewayProxyResponseEvent buildListResponse(Map<String, String> parameters) {
+        Optional<PageRequest> pageRequest = PageRequest.parse(parameters);
+        Optional<Bson> filter = LIST_FILTER.toFilter(parameters);
+        if (pageRequest.isEmpty() || filter.isEmpty()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        return pageRequest.get()
+                .fetch(RIDES_COLLECTION, filter.get(), LIST_WRITER)
+                .toResponse();
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
-        try {
-            String method = input.getHttpMethod();
-            if (HTTP_METHOD_GET.equals(method)) {
-                return buildGetResponse(input);
-            }
-            if (HTTP_METHOD_POST.equals(method)) {
-                return createRide(input);
-            }
-            if (HTTP_METHOD_PUT.equals(method)) {
-                return updateRide(input);
-            }
-            return buildErrorResponse(STATUS_CODE_METHOD_NOT_ALLOWED, MESSAGE_METHOD_NOT_ALLOWED);
-        } catch (RuntimeException exception) {
-            if (context != null && context.getLogger() != null) {
-                context.getLogger().log(exception.getMessage());
-            }
-            return buildErrorResponse(STATUS_CODE_INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR);
-        }
+        return router.handle(input, context);
     }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package org.aygo;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+import org.bson.Document;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.aygo.core.HttpStatus;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.Rollups;
+import org.aygo.core.Router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the mongod configured through the same environment variables as the Lambda
+ * ({@code MONGO_URI}, {@code MONGO_DB} and {@code MONGO_RIDES_COLLECTION} or
+ * {@code MONGO_COLLECTION}); skipped when {@code MONGO_URI} is not set.
+ */
+class RidesClaimTest {
+    private static final int CLAIMS = 16;
+    private static final String PATH = "/rides";
+    private static final String PATH_CLAIM = "/rides/claim";
+    private static final String PATH_RELEASE = "/rides/release";
+
+    private static Rides handler;
+    private static MongoCollection<Document> rides;
+    private static Rollups rollups;
+
+    private String rideId;
+    private String driverId;
+
+    @BeforeAll
+    static void connect() {
+        assumeTrue(System.getenv("MONGO_URI") != null, "MONGO_URI is not set");
+        handler = new Rides();
+        MongoDatabase database = MongoSupport.database(MongoSupport.client());
+        rides = MongoSupport.collection(database, "MONGO_RIDES_COLLECTION", "MONGO_COLLECTION");
+        rollups = Rollups.forDatabase(database);
+    }
+
+    @BeforeEach
+    void seedRide() {
+        String suffix = UUID.randomUUID().toString();
+        rideId = "r_test_" + suffix;
+        driverId = "d_test_" + suffix;
+        rides.insertOne(new Document("id", rideId)
+                .append("driver", driverId)
+                .append("available", true)
+                .append("passengerId", null)
+                .append("version", 1L));
+    }
+
+    @AfterEach
+    void removeRide() {
+        rides.deleteOne(Filters.eq("id", rideId));
+        rollups.collection().deleteMany(Filters.and(
+                Filters.eq(Rollups.FIELD_TYPE, Rollups.TYPE_DRIVER),
+                Filters.eq(Rollups.FIELD_ID, driverId)));
+        rollups.collection().deleteMany(Filters.and(
+                Filters.eq(Rollups.FIELD_TYPE, Rollups.TYPE_USER),
+                Filters.regex(Rollups.FIELD_ID, "^u_" + rideId)));
+    }
+
+    private int send(String method, String path, String body) {
+        return handler.handleRequest(new APIGatewayProxyRequestEvent()
+                .withHttpMethod(method)
+                .withPath(path)
+                .withBody(body), null).getStatusCode();
+    }
+
+    private long tripCount(String type, String id) {
+        Document rollup = rollups.collection().find(Rollups.key(type, id)).first();
+        return rollup == null ? 0 : rollup.get(Rollups.FIELD_TRIP_COUNT, Number.class).longValue();
+    }
+
+    @Test
+    void parallelClaimsOnOneRideHaveExactlyOneWinner() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLAIMS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try {
+            for (int i = 0; i < CLAIMS; i++) {
+                APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent()
+                        .withHttpMethod(Router.HTTP_METHOD_PUT)
+                        .withPath(PATH_CLAIM)
+                        .withBody("{\"id\":\"" + rideId + "\",\"passengerId\":\"u_" + rideId + "_" + i + "\"}");
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return handler.handleRequest(request, null).getStatusCode();
+                }));
+            }
+            start.countDown();
+            int claimed = 0;
+            int conflicts = 0;
+            for (Future<Integer> status : statuses) {
+                int code = status.get();
+                if (code == HttpStatus.OK) {
+                    claimed++;
+                } else if (code == HttpStatus.CONFLICT) {
+                    conflicts++;
+                }
+            }
+            assertEquals(1, claimed);
+            assertEquals(CLAIMS - 1, conflicts);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Document ride = rides.find(Filters.eq("id", rideId)).first();
+        assertFalse(ride.getBoolean("available"));
+        assertEquals(2L, ride.getLong("version"));
+    }
+
+    @Test
+    void assigningARideCountsATripForThePassengerAndTheDriver() {
+        String first = "u_" + rideId + "_1";
+        String second = "u_" + rideId + "_2";
+
+        assertEquals(HttpStatus.OK, send(Router.HTTP_METHOD_PUT, PATH_CLAIM,
+                "{\"id\":\"" + rideId + "\",\"passengerId\":\"" + first + "\"}"));
+        assertEquals(HttpStatus.OK, send(Router.HTTP_METHOD_PUT, PATH,
+                "{\"id\":\"" + rideId + "\",\"available\":false,\"passengerId\":\"" + first + "\"}"));
+        assertEquals(HttpStatus.OK, send(Router.HTTP_METHOD_PUT, PATH_RELEASE, "{\"id\":\"" + rideId + "\"}"));
+        assertEquals(HttpStatus.OK, send(Router.HTTP_METHOD_PUT, PATH,
+                "{\"id\":\"" + rideId + "\",\"available\":false,\"passengerId\":\"" + second + "\"}"));
+
+        assertEquals(1, tripCount(Rollups.TYPE_USER, first));
+        assertEquals(1, tripCount(Rollups.TYPE_USER, second));
+        assertEquals(2, tripCount(Rollups.TYPE_DRIVER, driverId));
+    }
+}
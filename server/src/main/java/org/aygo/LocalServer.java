@@ -0,0 +1,282 @@
+package org.aygo;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import org.aygo.core.HttpStatus;
+import org.aygo.core.LocalContext;
+import org.aygo.core.MongoSupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts the four Lambda handlers in one long-lived JVM behind the JDK's embedded HTTP server, as an
+ * alternative to per-invocation Lambda for steady traffic. Each HTTP request is mapped to the same
+ * {@link APIGatewayProxyRequestEvent} API Gateway would send and dispatched on its first path
+ * segment. The handlers share the process-wide client from {@link MongoSupport}, so size
+ * {@code MONGO_MAX_POOL_SIZE} to the concurrency limit.
+ *
+ * <p>Requests run on virtual threads when the JVM provides them (Java 21+) and on a cached thread
+ * pool otherwise. At most {@code SERVER_MAX_CONCURRENCY} requests are inside a handler at once; a
+ * request that cannot get a slot within {@code SERVER_ACQUIRE_TIMEOUT_MILLIS} is answered with
+ * {@code 503} instead of queueing without bound.
+ *
+ * <p>The server is a CRaC {@link Resource}: it stops listening before a checkpoint, after the
+ * in-flight requests drain, and binds the same port again on restore.
+ */
+public class LocalServer implements Resource {
+    private static final String ENV_PORT = "SERVER_PORT";
+    private static final String ENV_MAX_CONCURRENCY = "SERVER_MAX_CONCURRENCY";
+    private static final String ENV_ACQUIRE_TIMEOUT_MILLIS = "SERVER_ACQUIRE_TIMEOUT_MILLIS";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_CONCURRENCY = 64;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 1_000;
+    private static final int SHUTDOWN_DELAY_SECONDS = 5;
+    private static final long INVOCATION_TIMEOUT_MILLIS = 30_000;
+
+    private static final String MESSAGE_NOT_FOUND = "Not found";
+    private static final String MESSAGE_BUSY = "Server busy";
+    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+
+    private final Map<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> handlers;
+    private final Semaphore slots;
+    private final long acquireTimeoutMillis;
+    private ExecutorService executor;
+    private HttpServer server;
+    private int port;
+
+    public LocalServer(Map<String, ? extends RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> handlers,
+                       int maxConcurrency, long acquireTimeoutMillis) {
+        this.handlers = Map.copyOf(handlers);
+        this.slots = new Semaphore(maxConcurrency);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * The four services, keyed by the path prefix API Gateway routes to each Lambda.
+     */
+    public static Map<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> services() {
+        Map<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> services = new LinkedHashMap<>();
+        services.put("/users", new Users());
+        services.put("/drivers", new Drivers());
+        services.put("/rides", new Rides());
+        services.put("/payments", new Payments(PaymentGateway.fromEnvironment().orElseGet(LocalPaymentGateway::new)));
+        return services;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LocalServer server = new LocalServer(
+                services(),
+                MongoSupport.envInt(ENV_MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY),
+                MongoSupport.envLong(ENV_ACQUIRE_TIMEOUT_MILLIS, DEFAULT_ACQUIRE_TIMEOUT_MILLIS)
+        );
+        InetSocketAddress address = server.start(MongoSupport.envInt(ENV_PORT, DEFAULT_PORT));
+        Core.getGlobalContext().register(server);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.err.println("Listening on " + address);
+    }
+
+    /**
+     * @param port the port to bind, or {@code 0} for an ephemeral one
+     * @return the bound address
+     */
+    public synchronized InetSocketAddress start(int port) throws IOException {
+        executor = newExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        this.port = server.getAddress().getPort();
+        return server.getAddress();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(SHUTDOWN_DELAY_SECONDS);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) throws InterruptedException {
+        stop();
+        executor.awaitTermination(SHUTDOWN_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) throws IOException {
+        start(port);
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException exception) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Map.Entry<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> service = find(path);
+            if (service == null) {
+                send(exchange, HttpStatus.NOT_FOUND, MESSAGE_NOT_FOUND, null);
+                return;
+            }
+            if (!slots.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                send(exchange, HttpStatus.SERVICE_UNAVAILABLE, MESSAGE_BUSY, null);
+                return;
+            }
+            APIGatewayProxyResponseEvent response;
+            try {
+                response = service.getValue().handleRequest(toEvent(exchange), new LocalContext(
+                        service.getKey(), UUID.randomUUID().toString(),
+                        System.currentTimeMillis() + INVOCATION_TIMEOUT_MILLIS));
+            } finally {
+                slots.release();
+            }
+            send(exchange, response);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException exception) {
+            System.err.println(exception.getMessage());
+            send(exchange, HttpStatus.INTERNAL_ERROR, MESSAGE_INTERNAL_ERROR, null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Map.Entry<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> find(String path) {
+        for (Map.Entry<String, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>> entry : handlers.entrySet()) {
+            String prefix = entry.getKey();
+            if (path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the event the way API Gateway's proxy integration does: single-value maps hold the
+     * last value of repeated headers and parameters, and an absent query string is {@code null}.
+     */
+    static APIGatewayProxyRequestEvent toEvent(HttpExchange exchange) throws IOException {
+        URI uri = exchange.getRequestURI();
+        Map<String, String> headers = new HashMap<>();
+        Map<String, List<String>> multiValueHeaders = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            List<String> values = header.getValue();
+            if (values != null && !values.isEmpty()) {
+                headers.put(header.getKey(), values.get(values.size() - 1));
+                multiValueHeaders.put(header.getKey(), List.copyOf(values));
+            }
+        }
+        Map<String, List<String>> multiValueParameters = parseQuery(uri.getRawQuery());
+        Map<String, String> parameters = null;
+        if (!multiValueParameters.isEmpty()) {
+            parameters = new HashMap<>();
+            for (Map.Entry<String, List<String>> parameter : multiValueParameters.entrySet()) {
+                List<String> values = parameter.getValue();
+                parameters.put(parameter.getKey(), values.get(values.size() - 1));
+            }
+        }
+        String body;
+        try (InputStream input = exchange.getRequestBody()) {
+            byte[] bytes = input.readAllBytes();
+            body = bytes.length == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(exchange.getRequestMethod())
+                .withPath(uri.getPath())
+                .withHeaders(headers)
+                .withMultiValueHeaders(multiValueHeaders)
+                .withQueryStringParameters(parameters)
+                .withMultiValueQueryStringParameters(multiValueParameters.isEmpty() ? null : multiValueParameters)
+                .withBody(body)
+                .withIsBase64Encoded(false);
+    }
+
+    private static Map<String, List<String>> parseQuery(String rawQuery) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            String value = separator < 0 ? "" : decode(pair.substring(separator + 1));
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, APIGatewayProxyResponseEvent response) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        if (response.getMultiValueHeaders() != null) {
+            for (Map.Entry<String, List<String>> header : response.getMultiValueHeaders().entrySet()) {
+                headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+        }
+        int statusCode = response.getStatusCode() == null ? HttpStatus.OK : response.getStatusCode();
+        send(exchange, statusCode, response.getBody(), response.getHeaders());
+    }
+
+    private static void send(HttpExchange exchange, int statusCode, String body, Map<String, String> headers)
+            throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        if (headers != null) {
+            headers.forEach(responseHeaders::set);
+        }
+        if (!responseHeaders.containsKey(HEADER_CONTENT_TYPE)) {
+            responseHeaders.set(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
+        }
+        if (body == null || statusCode == HttpStatus.NOT_MODIFIED) {
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.aygo;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.aygo.core.HttpStatus;
+import org.aygo.core.LambdaRuntime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the Lambda Runtime API, to run a custom-runtime bootstrap locally and compare the
+ * native image with the shaded jar:
+ * <pre>
+ * java -cp server/target/server-1.0-SNAPSHOT.jar org.aygo.RuntimeApiEmulator event.json ... -- ./users/target/bootstrap
+ * java -cp server/target/server-1.0-SNAPSHOT.jar org.aygo.RuntimeApiEmulator event.json ... -- \
+ *     java -cp users/target/users-1.0-SNAPSHOT.jar org.aygo.core.LambdaRuntime
+ * </pre>
+ * Each file holds one API Gateway proxy event or an array of them. The command is started with
+ * {@code AWS_LAMBDA_RUNTIME_API} pointing here (plus whatever {@code _HANDLER} and Mongo variables
+ * are in the environment), is handed the events one at a time, and is killed after the last
+ * response. The report on stdout gives the time from launch to the first poll of
+ * {@code /invocation/next} (process start and handler initialisation), the latency of each
+ * invocation, and the peak RSS of the process read from {@code /proc}. The exit status is non-zero
+ * if any invocation failed or answered with a 5xx, which makes it usable as a smoke test.
+ *
+ * <p>The command is stopped with SIGTERM and given time to exit, so a JVM started with
+ * {@code -XX:ArchiveClassesAtExit} can write its AppCDS archive.
+ */
+public class RuntimeApiEmulator {
+    private static final String API_PATH = "/2018-06-01/runtime";
+    private static final String PATH_NEXT = API_PATH + "/invocation/next";
+    private static final String PATH_INVOCATION = API_PATH + "/invocation/";
+    private static final String PATH_INIT_ERROR = API_PATH + "/init/error";
+    private static final String SUFFIX_RESPONSE = "/response";
+    private static final String SUFFIX_ERROR = "/error";
+    private static final String ARGUMENT_SEPARATOR = "--";
+
+    private static final String HEADER_REQUEST_ID = "Lambda-Runtime-Aws-Request-Id";
+    private static final String HEADER_DEADLINE_MS = "Lambda-Runtime-Deadline-Ms";
+    private static final String HEADER_FUNCTION_ARN = "Lambda-Runtime-Invoked-Function-Arn";
+    private static final String FUNCTION_ARN = "arn:aws:lambda:local:000000000000:function:emulated";
+    private static final String FIELD_STATUS_CODE = "statusCode";
+    private static final String INIT_REQUEST_ID = "init";
+
+    private static final long INVOCATION_TIMEOUT_MILLIS = 30_000;
+    private static final long EXIT_TIMEOUT_SECONDS = 30;
+    private static final String PROC_STATUS = "/proc/%d/status";
+    private static final String PEAK_RSS_PREFIX = "VmHWM:";
+
+    private final List<String> events;
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+    private final AtomicLong firstPollNanos = new AtomicLong();
+    private long launchNanos;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private RuntimeApiEmulator(List<String> events) {
+        this.events = events;
+    }
+
+    private static final class Outcome {
+        private final String requestId;
+        private final boolean error;
+        private final String body;
+        private final long receivedNanos;
+
+        Outcome(String requestId, boolean error, String body) {
+            this.requestId = requestId;
+            this.error = error;
+            this.body = body;
+            this.receivedNanos = System.nanoTime();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int separator = Arrays.asList(args).indexOf(ARGUMENT_SEPARATOR);
+        if (separator < 1 || separator == args.length - 1) {
+            System.err.println("Usage: RuntimeApiEmulator <event.json>... -- <bootstrap command>...");
+            System.exit(2);
+            return;
+        }
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < separator; i++) {
+            JsonElement content = JsonParser.parseString(Files.readString(Path.of(args[i])));
+            if (content.isJsonArray()) {
+                content.getAsJsonArray().forEach(event -> events.add(event.toString()));
+            } else {
+                events.add(content.toString());
+            }
+        }
+        List<String> command = Arrays.asList(args).subList(separator + 1, args.length);
+        System.exit(new RuntimeApiEmulator(events).run(command) ? 0 : 1);
+    }
+
+    private boolean run(List<String> command) throws IOException, InterruptedException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(API_PATH, this::handle);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        builder.environment().put(LambdaRuntime.ENV_RUNTIME_API, "127.0.0.1:" + server.getAddress().getPort());
+        launchNanos = System.nanoTime();
+        Process process = builder.start();
+        boolean succeeded = true;
+        try {
+            for (int i = 0; i < events.size(); i++) {
+                String requestId = Integer.toString(i);
+                long sentNanos = System.nanoTime();
+                pending.add(requestId);
+                Outcome outcome = outcomes.poll(INVOCATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (outcome == null) {
+                    System.out.println("Invocation " + requestId + " timed out");
+                    return false;
+                }
+                if (INIT_REQUEST_ID.equals(outcome.requestId)) {
+                    System.out.println("Init error " + outcome.body);
+                    return false;
+                }
+                if (i == 0) {
+                    System.out.println("Init " + millis(firstPollNanos.get() - launchNanos) + " ms");
+                }
+                long elapsedNanos = outcome.receivedNanos - Math.max(sentNanos, firstPollNanos.get());
+                int statusCode = statusCode(outcome);
+                System.out.println("Invocation " + requestId + " " + describe(outcome, statusCode) + " "
+                        + millis(elapsedNanos) + " ms");
+                succeeded &= !outcome.error && statusCode < HttpStatus.INTERNAL_ERROR;
+            }
+            System.out.println("Peak RSS " + peakRss(process.pid()));
+            return succeeded;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (PATH_NEXT.equals(path)) {
+                firstPollNanos.compareAndSet(0, System.nanoTime());
+                String requestId = pending.take();
+                exchange.getResponseHeaders().set(HEADER_REQUEST_ID, requestId);
+                exchange.getResponseHeaders().set(HEADER_DEADLINE_MS,
+                        Long.toString(System.currentTimeMillis() + INVOCATION_TIMEOUT_MILLIS));
+                exchange.getResponseHeaders().set(HEADER_FUNCTION_ARN, FUNCTION_ARN);
+                send(exchange, HttpStatus.OK, events.get(Integer.parseInt(requestId)));
+            } else if (PATH_INIT_ERROR.equals(path)) {
+                outcomes.add(new Outcome(INIT_REQUEST_ID, true, readBody(exchange)));
+                send(exchange, HttpStatus.ACCEPTED, "{}");
+            } else if (path.startsWith(PATH_INVOCATION)) {
+                String rest = path.substring(PATH_INVOCATION.length());
+                boolean error = rest.endsWith(SUFFIX_ERROR);
+                String suffix = error ? SUFFIX_ERROR : SUFFIX_RESPONSE;
+                if (!rest.endsWith(suffix)) {
+                    send(exchange, HttpStatus.NOT_FOUND, "{}");
+                    return;
+                }
+                outcomes.add(new Outcome(rest.substring(0, rest.length() - suffix.length()), error, readBody(exchange)));
+                send(exchange, HttpStatus.ACCEPTED, "{}");
+            } else {
+                send(exchange, HttpStatus.NOT_FOUND, "{}");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int statusCode(Outcome outcome) {
+        if (outcome.error) {
+            return HttpStatus.INTERNAL_ERROR;
+        }
+        JsonElement statusCode = JsonParser.parseString(outcome.body).getAsJsonObject().get(FIELD_STATUS_CODE);
+        return statusCode == null ? HttpStatus.OK : statusCode.getAsInt();
+    }
+
+    private static String describe(Outcome outcome, int statusCode) {
+        return outcome.error ? "error " + outcome.body : "status " + statusCode;
+    }
+
+    private static String peakRss(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of(String.format(PROC_STATUS, pid)))) {
+                if (line.startsWith(PEAK_RSS_PREFIX)) {
+                    return line.substring(PEAK_RSS_PREFIX.length()).trim();
+                }
+            }
+        } catch (IOException exception) {
+            return "unavailable (" + exception.getMessage() + ")";
+        }
+        return "unavailable";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Builds the default and the slim (-Pslim) shaded jars, generates an AppCDS archive for each slim
+# jar from a training run, and drives every route of every service through RuntimeApiEmulator with
+# each variant. Prints jar size, loaded class count, time to the first /invocation/next and peak
+# RSS per variant; exits non-zero if any route fails or answers with a 5xx.
+#
+# Needs a JDK 17+ on PATH and the Mongo variables of the Lambdas (MONGO_URI, MONGO_DB and
+# MONGO_USERS_COLLECTION, MONGO_DRIVERS_COLLECTION, MONGO_RIDES_COLLECTION,
+# MONGO_PAYMENTS_COLLECTION) pointing at a test database on a replica set, since /rides/book
+# runs a transaction.
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+OUT="$ROOT/target/packaging"
+VERSION="1.0-SNAPSHOT"
+SERVICES="users:Users drivers:Drivers rides:Rides payments:Payments"
+
+cd "$ROOT"
+rm -rf "$OUT"
+mkdir -p "$OUT/default" "$OUT/slim"
+
+mvn -B -q package -DskipTests
+for service in $SERVICES; do
+    cp "${service%%:*}/target/${service%%:*}-$VERSION.jar" "$OUT/default/"
+done
+cp "server/target/server-$VERSION.jar" "$OUT/"
+mvn -B -q -Pslim package -DskipTests
+for service in $SERVICES; do
+    cp "${service%%:*}/target/${service%%:*}-$VERSION.jar" "$OUT/slim/"
+done
+
+# run <label> <events> <jar> [jvm options...]
+run() {
+    local label="$1" events="$2" jar="$3"
+    shift 3
+    local log="$OUT/$label.log" classes="$OUT/$label.classes"
+    java -cp "$OUT/server-$VERSION.jar" org.aygo.RuntimeApiEmulator "$events" -- \
+        java "$@" -Xlog:class+load:file="$classes" -cp "$jar" org.aygo.core.LambdaRuntime > "$log"
+    printf '%-22s %8s KB %6s classes %8s ms init %10s peak RSS\n' "$label" \
+        "$(( $(stat -c %s "$jar") / 1024 ))" \
+        "$(wc -l < "$classes")" \
+        "$(awk '$1 == "Init" { print $2 }' "$log")" \
+        "$(awk '$1 == "Peak" { print $3 }' "$log")"
+}
+
+for service in $SERVICES; do
+    name="${service%%:*}"
+    export _HANDLER="org.aygo.${service##*:}"
+    events="smoke/$name.json"
+    run "$name-default" "$events" "$OUT/default/$name-$VERSION.jar"
+    run "$name-slim" "$events" "$OUT/slim/$name-$VERSION.jar"
+    # Training run: the archive is written when the emulator stops the JVM after the last event.
+    java -cp "$OUT/server-$VERSION.jar" org.aygo.RuntimeApiEmulator "$events" -- \
+        java -XX:ArchiveClassesAtExit="$OUT/slim/$name.jsa" -cp "$OUT/slim/$name-$VERSION.jar" \
+        org.aygo.core.LambdaRuntime > "$OUT/$name-training.log"
+    run "$name-slim-appcds" "$events" "$OUT/slim/$name-$VERSION.jar" \
+        -XX:SharedArchiveFile="$OUT/slim/$name.jsa" -Xshare:auto
+done
@@ -5,76 +5,122 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
-import com.mongodb.client.result.UpdateResult;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
-import java.util.ArrayList;
+import org.aygo.core.BatchItemResult;
+import org.aygo.core.BatchWriter;
+import org.aygo.core.Checkpoints;
+import org.aygo.core.HttpStatus;
+import org.aygo.core.Json;
+import org.aygo.core.MongoSupport;
+import org.aygo.core.PageRequest;
+import org.aygo.core.Phases;
+import org.aygo.core.RawDocumentWriter;
+import org.aygo.core.Responses;
+import org.aygo.core.Rollups;
+import org.aygo.core.Router;
+import org.aygo.core.SummaryCache;
+
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public class Users implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
-    private static final String HTTP_METHOD_GET = "GET";
-    private static final String HTTP_METHOD_POST = "POST";
-    private static final String HTTP_METHOD_PUT = "PUT";
-    private static final String MESSAGE_METHOD_NOT_ALLOWED = "Method not allowed";
     private static final String MESSAGE_USER_NOT_FOUND = "User not found";
     private static final String MESSAGE_INVALID_BODY = "Invalid request body";
-    private static final String MESSAGE_INTERNAL_ERROR = "Internal server error";
     private static final String QUERY_PARAM_USER_ID = "id";
 
+    private static final String PATH_BASE = "/users";
+    private static final String PATH_BATCH = "/batch";
+
     private static final String USER_ID_PREFIX = "u_";
 
-    private static final String ENV_MONGO_URI = "MONGO_URI";
-    private static final String ENV_MONGO_DB = "MONGO_DB";
     private static final String ENV_MONGO_COLLECTION = "MONGO_COLLECTION";
+    private static final String ENV_USERS_COLLECTION = "MONGO_USERS_COLLECTION";
 
     private static final String FIELD_ID = "id";
     private static final String FIELD_NAME = "name";
     private static final String FIELD_TRAVELING = "traveling";
     private static final String FIELD_TRAVEL = "travel";
 
-    private static final MongoClient MONGO_CLIENT = createMongoClient();
-    private static final MongoDatabase MONGO_DATABASE = createMongoDatabase(MONGO_CLIENT);
-    private static final MongoCollection<Document> USERS_COLLECTION = createUsersCollection(MONGO_DATABASE);
+    private static final String PROPERTY_RIDE_ID = "rideId";
 
-    private final Gson gson = new Gson();
+    private static final MongoClient MONGO_CLIENT = MongoSupport.client();
+    private static final MongoDatabase MONGO_DATABASE = MongoSupport.database(MONGO_CLIENT);
+    private static final MongoCollection<Document> USERS_COLLECTION = MongoSupport.collection(MONGO_DATABASE, ENV_USERS_COLLECTION, ENV_MONGO_COLLECTION);
 
-    private static MongoClient createMongoClient() {
-        String mongoUri = System.getenv(ENV_MONGO_URI);
-        if (mongoUri == null || mongoUri.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_URI);
-        }
-        return MongoClients.create(mongoUri);
-    }
+    private static final IndexOptions UNIQUE = new IndexOptions().unique(true);
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(FIELD_ID), UNIQUE)
+    );
 
-    private static MongoDatabase createMongoDatabase(MongoClient client) {
-        String databaseName = System.getenv(ENV_MONGO_DB);
-        if (databaseName == null || databaseName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_DB);
-        }
-        return client.getDatabase(databaseName);
+    static {
+        MongoSupport.ensureIndexes(USERS_COLLECTION, INDEXES);
     }
 
-    private static MongoCollection<Document> createUsersCollection(MongoDatabase database) {
-        String collectionName = System.getenv(ENV_MONGO_COLLECTION);
-        if (collectionName == null || collectionName.isBlank()) {
-            throw new IllegalStateException("Missing environment variable: " + ENV_MONGO_COLLECTION);
-        }
-        return database.getCollection(collectionName);
+    private static final RawDocumentWriter LIST_WRITER = RawDocumentWriter.builder()
+            .string(FIELD_ID)
+            .string(FIELD_NAME)
+            .bool(FIELD_TRAVELING, false)
+            .string(FIELD_TRAVEL)
+            .build();
+
+    private static final SummaryCache USER_CACHE = SummaryCache.fromEnvironment();
+    private static final Rollups ROLLUPS = Rollups.forDatabase(MONGO_DATABASE);
+    private static final Map<String, String> CACHE_HIT_HEADERS = Map.of(SummaryCache.HEADER_CACHE, SummaryCache.CACHE_HIT);
+    private static final Map<String, String> CACHE_MISS_HEADERS = Map.of(SummaryCache.HEADER_CACHE, SummaryCache.CACHE_MISS);
+
+    private static final FindOneAndUpdateOptions RETURN_UPDATED = new FindOneAndUpdateOptions()
+            .returnDocument(ReturnDocument.AFTER);
+
+    private final Gson gson = Json.gson();
+    private final Router router = Router.builder()
+            .get(this::buildGetResponse)
+            .post(PATH_BATCH, this::createUsers)
+            .post(this::createUser)
+            .put(PATH_BATCH, this::updateTravels)
+            .put(this::updateTravel)
+            .build();
+
+    public Users() {
+        Checkpoints.prime(this, PATH_BASE);
     }
 
     private static class CreateUserRequest {
         private String name;
 
+        static CreateUserRequest read(JsonReader reader) throws IOException {
+            CreateUserRequest request = new CreateUserRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_NAME -> request.name = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getName() {
             return name;
         }
@@ -85,6 +131,21 @@ public class Users implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         private boolean traveling;
         private String rideId;
 
+        static TravelUpdateRequest read(JsonReader reader) throws IOException {
+            TravelUpdateRequest request = new TravelUpdateRequest();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case FIELD_ID -> request.id = Json.nextString(reader);
+                    case FIELD_TRAVELING -> request.traveling = Json.nextBoolean(reader, request.traveling);
+                    case PROPERTY_RIDE_ID -> request.rideId = Json.nextString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return request;
+        }
+
         String getId() {
             return id;
         }
@@ -98,29 +159,17 @@ public class Users implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         }
     }
 
-    @SuppressWarnings("unused")
-    private static class UserSummary {
-        private final String id;
-        private final String name;
-        private final boolean traveling;
-        private final String travel;
-
-        UserSummary(Document source) {
-            this.id = source.getString(FIELD_ID);
-            this.name = source.getString(FIELD_NAME);
-            this.traveling = source.getBoolean(FIELD_TRAVELING, false);
-            this.travel = source.getString(FIELD_TRAVEL);
-        }
-    }
-
-    private String serializeUsers() {
-        ArrayList<UserSummary> summaries = new ArrayList<>();
-        USERS_COLLECTION.find().map(UserSummary::new).into(summaries);
-        return gson.toJson(summaries);
+    private void writeUser(JsonWriter writer, Document document) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ID).value(document.getString(FIELD_ID));
+        writer.name(FIELD_NAME).value(document.getString(FIELD_NAME));
+        writer.name(FIELD_TRAVELING).value(document.getBoolean(FIELD_TRAVELING, false));
+        writer.name(FIELD_TRAVEL).value(document.getString(FIELD_TRAVEL));
+        writer.endObject();
     }
 
     private String serializeUser(Document document) {
-        return gson.toJson(new UserSummary(document));
+        return Json.write(document, this::writeUser);
     }
 
     private Optional<Document> findUserById(String userId) {
@@ -131,47 +180,101 @@ public class Users implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         return Optional.ofNullable(document);
     }
 
-    private APIGatewayProxyResponseEvent createUser(APIGatewayProxyRequestEvent input) {
-        CreateUserRequest request = gson.fromJson(input.getBody(), CreateUserRequest.class);
-        if (request == null || request.getName() == null || request.getName().isBlank()) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
-        }
-        String userId = USER_ID_PREFIX + UUID.randomUUID();
-        Document document = new Document()
-                .append(FIELD_ID, userId)
+    private boolean isValidCreateRequest(CreateUserRequest request) {
+        return request != null && request.getName() != null && !request.getName().isBlank();
+    }
+
+    private boolean isValidUpdateRequest(TravelUpdateRequest request) {
+        return request != null && request.getId() != null && !request.getId().isBlank();
+    }
+
+    private Document buildUserDocument(CreateUserRequest request) {
+        return new Document()
+                .append(FIELD_ID, USER_ID_PREFIX + UUID.randomUUID())
                 .append(FIELD_NAME, request.getName())
                 .append(FIELD_TRAVELING, false)
                 .append(FIELD_TRAVEL, null);
+    }
+
+    private Bson buildTravelUpdate(TravelUpdateRequest request) {
+        return Updates.combine(
+                Updates.set(FIELD_TRAVELING, request.isTraveling()),
+                Updates.set(FIELD_TRAVEL, request.getRideId())
+        );
+    }
+
+    private APIGatewayProxyResponseEvent createUser(APIGatewayProxyRequestEvent input) {
+        CreateUserRequest request = Json.read(input.getBody(), CreateUserRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (!isValidCreateRequest(request)) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        Phases.mark(Phases.VALIDATE);
+        Document document = buildUserDocument(request);
         USERS_COLLECTION.insertOne(document);
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(201);
-        responseEvent.setBody(serializeUser(document));
-        return responseEvent;
+        Phases.mark(Phases.DB);
+        return Responses.created(serializeUser(document));
+    }
+
+    private APIGatewayProxyResponseEvent createUsers(APIGatewayProxyRequestEvent input) {
+        List<CreateUserRequest> requests = Json.readArray(input.getBody(), CreateUserRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        BatchWriter batch = new BatchWriter(USERS_COLLECTION, requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!isValidCreateRequest(requests.get(i))) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            Document document = buildUserDocument(requests.get(i));
+            batch.add(i, document.getString(FIELD_ID), new InsertOneModel<>(document));
+        }
+        return Responses.ok(gson.toJson(batch.insert()));
+    }
+
+    private APIGatewayProxyResponseEvent updateTravels(APIGatewayProxyRequestEvent input) {
+        List<TravelUpdateRequest> requests = Json.readArray(input.getBody(), TravelUpdateRequest::read);
+        if (requests == null || requests.isEmpty() || requests.size() > BatchWriter.MAX_BATCH_SIZE) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        BatchWriter batch = new BatchWriter(USERS_COLLECTION, requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!isValidUpdateRequest(requests.get(i))) {
+                batch.reject(i, MESSAGE_INVALID_BODY);
+                continue;
+            }
+            String userId = requests.get(i).getId();
+            batch.add(i, userId, new UpdateOneModel<>(Filters.eq(FIELD_ID, userId), buildTravelUpdate(requests.get(i))));
+        }
+        List<BatchItemResult> results = batch.update();
+        for (BatchItemResult result : results) {
+            if (result.getId() != null) {
+                USER_CACHE.invalidate(result.getId());
+            }
+        }
+        return Responses.ok(gson.toJson(results));
     }
 
     private APIGatewayProxyResponseEvent updateTravel(APIGatewayProxyRequestEvent input) {
-        TravelUpdateRequest request = gson.fromJson(input.getBody(), TravelUpdateRequest.class);
-        if (request == null || request.getId() == null || request.getId().isBlank()) {
-            return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+        TravelUpdateRequest request = Json.read(input.getBody(), TravelUpdateRequest::read);
+        Phases.mark(Phases.PARSE);
+        if (!isValidUpdateRequest(request)) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
         }
-        UpdateResult updateResult = USERS_COLLECTION.updateOne(
+        Phases.mark(Phases.VALIDATE);
+        Document user = USERS_COLLECTION.findOneAndUpdate(
                 Filters.eq(FIELD_ID, request.getId()),
-                Updates.combine(
-                        Updates.set(FIELD_TRAVELING, request.isTraveling()),
-                        Updates.set(FIELD_TRAVEL, request.getRideId())
-                )
+                buildTravelUpdate(request),
+                RETURN_UPDATED
         );
-        if (updateResult.getMatchedCount() == 0) {
-            return buildErrorResponse(404, MESSAGE_USER_NOT_FOUND);
-        }
-        Optional<Document> user = findUserById(request.getId());
-        if (user.isEmpty()) {
-            return buildErrorResponse(404, MESSAGE_USER_NOT_FOUND);
+        Phases.mark(Phases.DB);
+        if (user == null) {
+            return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_USER_NOT_FOUND);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializeUser(user.get()));
-        return responseEvent;
+        String body = serializeUser(user);
+        USER_CACHE.put(request.getId(), body);
+        return Responses.ok(body);
     }
 
     private APIGatewayProxyResponseEvent buildGetResponse(APIGatewayProxyRequestEvent input) {
@@ -179,49 +282,45 @@ public class Users implements RequestHandler<APIGatewayProxyRequestEvent, APIGat
         if (parameters != null && parameters.containsKey(QUERY_PARAM_USER_ID)) {
             String userId = parameters.get(QUERY_PARAM_USER_ID);
             if (userId == null || userId.isBlank()) {
-                return buildErrorResponse(400, MESSAGE_INVALID_BODY);
+                return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+            }
+            Phases.mark(Phases.VALIDATE);
+            Optional<String> cached = USER_CACHE.get(userId);
+            if (cached.isPresent()) {
+                return Responses.ok(withRollup(parameters, cached.get(), userId), CACHE_HIT_HEADERS);
             }
             Optional<Document> user = findUserById(userId);
+            Phases.mark(Phases.DB);
             if (user.isEmpty()) {
-                return buildErrorResponse(404, MESSAGE_USER_NOT_FOUND);
+                return Responses.error(HttpStatus.NOT_FOUND, MESSAGE_USER_NOT_FOUND);
             }
-            APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-            responseEvent.setStatusCode(200);
-            responseEvent.setBody(serializeUser(user.get()));
-            return responseEvent;
+            String body = serializeUser(user.get());
+            USER_CACHE.put(userId, body);
+            return Responses.ok(withRollup(parameters, body, userId), CACHE_MISS_HEADERS);
         }
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(200);
-        responseEvent.setBody(serializeUsers());
-        return responseEvent;
+        return buildListResponse(parameters);
     }
 
-    private APIGatewayProxyResponseEvent buildErrorResponse(int statusCode, String message) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-        responseEvent.setStatusCode(statusCode);
-        responseEvent.setBody(message);
-        return responseEvent;
+    /**
+     * With {@code include=rollup}, adds the user's pre-aggregated totals to the profile. The
+     * cached profile is left as is; only the rollup is read on every request.
+     */
+    private String withRollup(Map<String, String> parameters, String body, String userId) {
+        return Rollups.requested(parameters) ? ROLLUPS.embed(body, Rollups.TYPE_USER, userId) : body;
+    }
+
+    private APIGatewayProxyResponseEvent buildListResponse(Map<String, String> parameters) {
+        Optional<PageRequest> pageRequest = PageRequest.parse(parameters);
+        if (pageRequest.isEmpty()) {
+            return Responses.error(HttpStatus.BAD_REQUEST, MESSAGE_INVALID_BODY);
+        }
+        return pageRequest.get()
+                .fetch(USERS_COLLECTION, Filters.empty(), LIST_WRITER)
+                .toResponse();
     }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent input, Context context) {
-        try {
-            String method = input.getHttpMethod();
-            if (HTTP_METHOD_GET.equals(method)) {
-                return buildGetResponse(input);
-            }
-            if (HTTP_METHOD_POST.equals(method)) {
-                return createUser(input);
-            }
-            if (HTTP_METHOD_PUT.equals(method)) {
-                return updateTravel(input);
-            }
-            return buildErrorResponse(405, MESSAGE_METHOD_NOT_ALLOWED);
-        } catch (RuntimeException exception) {
-            if (context != null && context.getLogger() != null) {
-                context.getLogger().log(exception.getMessage());
-            }
-            return buildErrorResponse(500, MESSAGE_INTERNAL_ERROR);
-        }
+        return router.handle(input, context);
     }
 }
\ No newline at end of file